@@ -0,0 +1,87 @@
+package com.zackmurry.gifngo.benchmarks;
+
+import com.zackmurry.gifngo.models.Frame;
+import com.zackmurry.gifngo.recorder.SyntheticFrameSource;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * deterministic synthetic frames for benchmarks, so that runs on different machines and commits encode the same pixels
+ */
+final class BenchmarkImages {
+
+    private BenchmarkImages() {
+
+    }
+
+    /**
+     * @param resolution resolution in the form [width]x[height]
+     * @param content "screen" for flat UI-like frames or "photo" for noisy gradients
+     * @param index which frame of a recording this is. consecutive frames differ a little, like in a recording
+     */
+    static BufferedImage create(String resolution, String content, int index) {
+        final String[] size = resolution.split("x");
+        final int width = Integer.parseInt(size[0]);
+        final int height = Integer.parseInt(size[1]);
+        switch (content) {
+            case "screen":
+                // the same frames that --source synthetic records, so benchmarks and load tests measure the same content
+                return toBgr(new SyntheticFrameSource(width, height).nextFrame(index));
+            case "photo":
+                return photoLike(width, height, index);
+            default:
+                throw new IllegalArgumentException("Unknown content type: " + content);
+        }
+    }
+
+    static List<Frame> createFrames(String resolution, String content, int count) {
+        final List<Frame> frames = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            frames.add(new Frame(create(resolution, content, i), i * 50));
+        }
+        return frames;
+    }
+
+    /**
+     * @return pixels of an image in BGR order, like GifConverter reads them
+     */
+    static byte[] pixels(BufferedImage image) {
+        return ((DataBufferByte) toBgr(image).getRaster().getDataBuffer()).getData();
+    }
+
+    /**
+     * @return a copy of an image in TYPE_3BYTE_BGR, the type GifConverter reads without converting
+     */
+    private static BufferedImage toBgr(BufferedImage image) {
+        final BufferedImage bgr = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_3BYTE_BGR);
+        final Graphics2D g = bgr.createGraphics();
+        g.drawImage(image, 0, 0, null);
+        g.dispose();
+        return bgr;
+    }
+
+    /**
+     * smooth gradients with noise on top, which has far more distinct colors than a screen
+     */
+    private static BufferedImage photoLike(int width, int height, int index) {
+        final BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_3BYTE_BGR);
+        final Graphics2D g = image.createGraphics();
+        g.setPaint(new GradientPaint(index, 0, new Color(20, 90, 160), width, height, new Color(230, 170, 60)));
+        g.fillRect(0, 0, width, height);
+        g.setPaint(new RadialGradientPaint(width / 3f + index, height / 2f, Math.max(1, height / 3f), new float[] { 0, 1 }, new Color[] { new Color(40, 140, 60), new Color(40, 140, 60, 0) }));
+        g.fillRect(0, 0, width, height);
+        g.dispose();
+        final byte[] pixels = ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+        final Random random = new Random(7 + index);
+        for (int i = 0; i < pixels.length; i++) {
+            pixels[i] = (byte) Math.max(0, Math.min(255, (pixels[i] & 0xff) + random.nextInt(17) - 8));
+        }
+        return image;
+    }
+
+}
@@ -0,0 +1,52 @@
+package com.zackmurry.gifngo.benchmarks;
+
+import com.zackmurry.gifngo.converter.GifConverter;
+import com.zackmurry.gifngo.models.Frame;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayOutputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * benchmarks building a whole gif from frames that have already been resized
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class GifConverterBenchmark {
+
+    private static final int FRAME_COUNT = 10;
+
+    @Param({ "640x360", "1280x720" })
+    private String resolution;
+
+    @Param({ "screen", "photo" })
+    private String content;
+
+    @Param({ "1", "10", "30" })
+    private int quantizationSample;
+
+    private List<Frame> frames;
+
+    @Setup
+    public void setup() {
+        frames = BenchmarkImages.createFrames(resolution, content, FRAME_COUNT);
+    }
+
+    @Benchmark
+    public byte[] process() {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final GifConverter converter = new GifConverter(frames);
+        converter.setOutputStream(out);
+        converter.setQuantizationSample(quantizationSample);
+        if (!converter.process()) {
+            throw new IllegalStateException("GifConverter failed to build the gif.");
+        }
+        return out.toByteArray();
+    }
+
+}
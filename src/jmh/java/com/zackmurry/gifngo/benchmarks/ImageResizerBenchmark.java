@@ -0,0 +1,47 @@
+package com.zackmurry.gifngo.benchmarks;
+
+import com.zackmurry.gifngo.recorder.ImageResizer;
+import com.zackmurry.gifngo.recorder.ResizeQuality;
+import org.openjdk.jmh.annotations.*;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * benchmarks resizing a full-screen capture to the output resolution
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ImageResizerBenchmark {
+
+    @Param({ "640x360", "1280x720" })
+    private String resolution;
+
+    @Param({ "screen", "photo" })
+    private String content;
+
+    @Param({ "NEAREST", "BILINEAR", "PROGRESSIVE", "BOX" })
+    private ResizeQuality quality;
+
+    private BufferedImage capture;
+    private int width;
+    private int height;
+
+    @Setup
+    public void setup() {
+        final String[] size = resolution.split("x");
+        width = Integer.parseInt(size[0]);
+        height = Integer.parseInt(size[1]);
+        capture = BenchmarkImages.create("1920x1080", content, 0);
+    }
+
+    @Benchmark
+    public BufferedImage resize() {
+        return ImageResizer.resize(capture, width, height, quality);
+    }
+
+}
@@ -0,0 +1,53 @@
+package com.zackmurry.gifngo.benchmarks;
+
+import com.zackmurry.gifngo.converter.algorithms.LZWEncoder;
+import com.zackmurry.gifngo.converter.algorithms.NeuQuant;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * benchmarks compressing a frame that has already been mapped to a color table
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LZWEncoderBenchmark {
+
+    @Param({ "640x360", "1280x720", "1920x1080" })
+    private String resolution;
+
+    @Param({ "screen", "photo" })
+    private String content;
+
+    private int width;
+    private int height;
+    private byte[] indexedPixels;
+
+    @Setup
+    public void setup() {
+        final String[] size = resolution.split("x");
+        width = Integer.parseInt(size[0]);
+        height = Integer.parseInt(size[1]);
+        final byte[] pixels = BenchmarkImages.pixels(BenchmarkImages.create(resolution, content, 0));
+        final NeuQuant neuQuant = new NeuQuant(pixels, pixels.length, 10);
+        neuQuant.process();
+        indexedPixels = new byte[pixels.length / 3];
+        for (int i = 0, k = 0; i < indexedPixels.length; i++, k += 3) {
+            indexedPixels[i] = (byte) neuQuant.map(pixels[k] & 0xff, pixels[k + 1] & 0xff, pixels[k + 2] & 0xff);
+        }
+    }
+
+    @Benchmark
+    public byte[] encode() throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream(indexedPixels.length);
+        new LZWEncoder(width, height, indexedPixels, 8).encode(out);
+        return out.toByteArray();
+    }
+
+}
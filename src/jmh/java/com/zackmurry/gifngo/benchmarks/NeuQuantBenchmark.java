@@ -0,0 +1,51 @@
+package com.zackmurry.gifngo.benchmarks;
+
+import com.zackmurry.gifngo.converter.algorithms.NeuQuant;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * benchmarks training NeuQuant on a frame and mapping every pixel of the frame to the trained network
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class NeuQuantBenchmark {
+
+    @Param({ "640x360", "1280x720", "1920x1080" })
+    private String resolution;
+
+    @Param({ "screen", "photo" })
+    private String content;
+
+    @Param({ "1", "10", "30" })
+    private int quantizationSample;
+
+    private byte[] pixels;
+    private NeuQuant trained;
+
+    @Setup
+    public void setup() {
+        pixels = BenchmarkImages.pixels(BenchmarkImages.create(resolution, content, 0));
+        trained = new NeuQuant(pixels, pixels.length, quantizationSample);
+        trained.process();
+    }
+
+    @Benchmark
+    public byte[] process() {
+        return new NeuQuant(pixels, pixels.length, quantizationSample).process();
+    }
+
+    @Benchmark
+    public void map(Blackhole blackhole) {
+        for (int k = 0; k < pixels.length; k += 3) {
+            blackhole.consume(trained.map(pixels[k] & 0xff, pixels[k + 1] & 0xff, pixels[k + 2] & 0xff));
+        }
+    }
+
+}
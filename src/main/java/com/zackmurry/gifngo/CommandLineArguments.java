@@ -1,6 +1,13 @@
 package com.zackmurry.gifngo;
 
 import com.beust.jcommander.Parameter;
+import com.zackmurry.gifngo.converter.algorithms.QuantizerType;
+import com.zackmurry.gifngo.models.ImageDimension;
+import com.zackmurry.gifngo.recorder.FrameSource;
+import com.zackmurry.gifngo.recorder.OverflowPolicy;
+import com.zackmurry.gifngo.recorder.ReplayFrameSource;
+import com.zackmurry.gifngo.recorder.SyntheticFrameSource;
+import com.zackmurry.gifngo.recorder.ResizeQuality;
 import lombok.Getter;
 import lombok.Setter;
 import org.slf4j.Logger;
@@ -9,6 +16,7 @@ import org.slf4j.LoggerFactory;
 import javax.swing.*;
 import java.awt.event.InputEvent;
 import java.awt.event.KeyEvent;
+import java.io.File;
 import java.io.IOException;
 import java.util.Properties;
 
@@ -23,12 +31,52 @@ public class CommandLineArguments {
     @Parameter(names = {"--fps", "-f"}, description = "Frames per second to record at.")
     private int framesPerSecond = Constants.DEFAULT_FPS;
 
+    @Parameter(names = {"--min-fps", "-mf"}, description = "Let the frame rate drop as low as this while recording when frames can't be captured or encoded fast enough, " +
+            "and raise it again once they can. 0 keeps the frame rate fixed.")
+    private double minFramesPerSecond = 0;
+
     @Parameter(names = {"--repeat", "-r"}, description = "Number of times to play the GIF. 0 means repeat infinitely. Greater than 0 means play r times.")
     private int repeat = 0;
 
     @Parameter(names = {"--threads", "-t"}, description = "Number of threads to record on.")
     private int threadCount = 2;
 
+    @Parameter(names = {"--adaptive-threads", "-at"}, description = "Start recording on one thread and add or retire threads as needed to keep up with the frame rate. " +
+            "The number of threads is then chosen automatically instead of with --threads.")
+    private boolean adaptiveThreads = false;
+
+    @Parameter(names = {"--encoding-threads", "-et"}, description = "Number of threads to encode frames of the GIF on. The output is the same regardless of this value.")
+    private int encodingThreads = 1;
+
+    @Parameter(names = {"--reuse-palette", "-rp"}, description = "Reuse the colors of the previous frame until the colors on screen change significantly. " +
+            "This makes building the GIF much faster and the output smaller, but can make colors less accurate.")
+    private boolean reusePalette = false;
+
+    @Parameter(names = {"--scene-change-threshold", "-sct"}, description = "How much the colors on screen have to change, from 0 to 1, before new colors are chosen when reusing colors (see \"--reuse-palette\").")
+    private double sceneChangeThreshold = 0.05;
+
+    @Parameter(names = {"--skip-duplicates", "-sd"}, description = "Don't store frames that are the same as the frame before them. The previous frame is shown for longer instead.")
+    private boolean skipDuplicates = false;
+
+    @Parameter(names = {"--delta", "-dt"}, description = "Only store the part of each frame that changed since the previous frame. " +
+            "This makes recordings where most of the screen stays still much smaller and faster to build.")
+    private boolean delta = false;
+
+    @Parameter(names = {"--global-palette", "-gp"}, description = "Choose one set of colors for the whole GIF from a sample of its frames, instead of choosing colors for every frame. " +
+            "This is the fastest way to build a GIF and makes it smaller, but works best when the colors on screen don't change much.")
+    private boolean globalPalette = false;
+
+    @Parameter(names = {"--quantizer", "-qz"}, description = "How the 256 colors of each frame are chosen. NEUQUANT gives the most accurate colors, " +
+            "WU is much faster and nearly as accurate, and OCTREE is the fastest.")
+    private QuantizerType quantizer = QuantizerType.NEUQUANT;
+
+    @Parameter(names = {"--queue-capacity", "-qc"}, description = "Maximum number of captured frames to hold in memory while they wait to be encoded.")
+    private int queueCapacity = 32;
+
+    @Parameter(names = {"--overflow-policy", "-op"}, description = "What to do with new frames when the encoder falls behind and the frame queue is full. " +
+            "BLOCK waits for room (lowering the frame rate), DROP_OLDEST throws away the oldest waiting frame, and SPILL_TO_DISK saves frames to a temporary file until the encoder catches up.")
+    private OverflowPolicy overflowPolicy = OverflowPolicy.BLOCK;
+
     @Parameter(names = {"--strict-fps", "-s"}, description = "Acceptable frame rate difference. The recording will fail if the fps is more than" +
             " s away from the desired fps. A value of zero will not give any warnings about fps. A negative value will act as a positive value," +
             " but instead give a warning instead of failing the recording.")
@@ -46,6 +94,32 @@ public class CommandLineArguments {
     @Parameter(names = {"--resolution", "-res"}, description = "Set the output resolution. Should be in the format WIDTHxHEIGHT, where WIDTH and HEIGHT are positive integers.")
     private String resolution = Constants.DEFAULT_RESOLUTION;
 
+    @Parameter(names = {"--region", "-rg"}, description = "Record only part of the screen. Should be in the format X,Y,WIDTH,HEIGHT. " +
+            "If a monitor is chosen, X and Y are relative to the top-left corner of the monitor.")
+    private String region;
+
+    @Parameter(names = {"--source", "-src"}, description = "Where frames come from. \"screen\" records the screen, \"synthetic:WIDTHxHEIGHT\" generates screen-like frames, " +
+            "and \"replay:PATH\" replays a folder of images, a capture file from the captures folder, or a file of raw frames. The last two don't need a display, which is useful for benchmarks.")
+    private String source = "screen";
+
+    @Parameter(names = {"--record-for", "-rf"}, description = "Start recording right away and stop after this many seconds (or when a replay runs out), " +
+            "instead of waiting for the hotkey. The program ends after the gif is built.")
+    private int recordFor = 0;
+
+    @Parameter(names = {"--monitor", "-m"}, description = "Record a specific monitor, numbered from 0. The default is the primary monitor.")
+    private int monitor = -1;
+
+    @Parameter(names = {"--resize-quality", "-rq"}, description = "How captures are shrunk to the output resolution. " +
+            "NEAREST is the fastest, then BILINEAR and PROGRESSIVE, and BOX is the smoothest.")
+    private ResizeQuality resizeQuality = ResizeQuality.BOX;
+
+    @Parameter(names = {"--resize-threads", "-rt"}, description = "Number of threads to resize captures on. Large captures are also split up between these threads.")
+    private int resizeThreads = 1;
+
+    @Parameter(names = {"--resize-at-capture", "-rac"}, description = "Shrink each screenshot as soon as it's taken, so that full-size screenshots don't pile up in memory. " +
+            "This uses less memory, but the extra work on the recording threads can lower the frame rate.")
+    private boolean resizeAtCapture = false;
+
     @Parameter(names = {"--init", "-i", "init"}, description = "Automatically allow using a \"gifngo\" command anywhere by updating your path. Supports Windows and Linux.")
     private boolean init = false;
 
@@ -57,6 +131,10 @@ public class CommandLineArguments {
             "This takes an input of the key that should be pressed to build the gifs (see \"--key\").")
     private String waitForBuild = "";
 
+    @Parameter(names = {"--build-jobs", "-bj"}, description = "Number of saved recordings to build at once when building with --wait-for-build. " +
+            "Builds that would use too much memory together wait for each other.")
+    private int buildJobs = 1;
+
     @Parameter(names = {"--version", "-v"}, description = "Print the version of gifngo installed")
     private boolean version = false;
 
@@ -72,6 +150,37 @@ public class CommandLineArguments {
         }
     }
 
+    /**
+     * parses a String into a FrameSource
+     * @param s a String representing the source. format: <code>screen</code>, <code>synthetic:WIDTHxHEIGHT</code>, or <code>replay:PATH</code>
+     * @throws IllegalArgumentException if <code>s</code> isn't one of those formats, or if the replay path can't be read
+     * @return the source, or null to record the screen
+     */
+    public static FrameSource parseSource(String s) {
+        if (s.equals("screen")) {
+            return null;
+        }
+        final int colon = s.indexOf(':');
+        if (colon < 0) {
+            throw new IllegalArgumentException("Source should be screen, synthetic:WIDTHxHEIGHT, or replay:PATH");
+        }
+        final String type = s.substring(0, colon);
+        final String value = s.substring(colon + 1);
+        switch (type) {
+            case "synthetic":
+                final ImageDimension size = ImageDimension.fromString(value);
+                return new SyntheticFrameSource(size.getWidth(), size.getHeight());
+            case "replay":
+                try {
+                    return new ReplayFrameSource(new File(value));
+                } catch (IOException e) {
+                    throw new IllegalArgumentException("Couldn't read frames to replay from " + value + ": " + e.getMessage());
+                }
+            default:
+                throw new IllegalArgumentException("Source should be screen, synthetic:WIDTHxHEIGHT, or replay:PATH");
+        }
+    }
+
     /**
      * parses a String into a KeyStroke
      * @param k a String representing the key. format: <code>F[1-24]_[SHIFT|CONTROL|CTRL|ALT|NONE]</code>.
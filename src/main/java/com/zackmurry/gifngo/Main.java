@@ -4,6 +4,7 @@ import ch.qos.logback.classic.Level;
 import com.beust.jcommander.JCommander;
 import com.beust.jcommander.ParameterException;
 import com.tulskiy.keymaster.common.Provider;
+import com.zackmurry.gifngo.models.CaptureRegion;
 import com.zackmurry.gifngo.models.ImageDimension;
 import com.zackmurry.gifngo.recorder.ScreenRecorderManager;
 import org.slf4j.Logger;
@@ -50,6 +51,21 @@ public class Main {
         recorder.setRepeat(cla.getRepeat());
         recorder.setStrictFps(cla.getStrictFps());
         recorder.setSingleRecording(cla.isSingleRecording());
+        recorder.setAdaptiveThreads(cla.isAdaptiveThreads());
+        recorder.setMinFramesPerSecond(cla.getMinFramesPerSecond());
+        recorder.setEncodingThreads(cla.getEncodingThreads());
+        recorder.setBuildJobs(cla.getBuildJobs());
+        recorder.setReusePalette(cla.isReusePalette());
+        recorder.setSceneChangeThreshold(cla.getSceneChangeThreshold());
+        recorder.setGlobalPalette(cla.isGlobalPalette());
+        recorder.setQuantizerType(cla.getQuantizer());
+        recorder.setDeltaEncoding(cla.isDelta());
+        recorder.setSkipDuplicateFrames(cla.isSkipDuplicates());
+        recorder.setQueueCapacity(cla.getQueueCapacity());
+        recorder.setOverflowPolicy(cla.getOverflowPolicy());
+        recorder.setResizeQuality(cla.getResizeQuality());
+        recorder.setResizeThreads(cla.getResizeThreads());
+        recorder.setResizeAtCapture(cla.isResizeAtCapture());
         
         try {
             ImageDimension outputDimensions = ImageDimension.fromString(cla.getResolution());
@@ -59,6 +75,30 @@ public class Main {
             logger.info("Defaulting output resolution to {}.", Constants.DEFAULT_RESOLUTION);
         }
 
+        try {
+            CaptureRegion captureRegion = cla.getMonitor() >= 0 ? CaptureRegion.ofMonitor(cla.getMonitor()) : null;
+            if (cla.getRegion() != null) {
+                captureRegion = CaptureRegion.fromString(cla.getRegion()).relativeTo(captureRegion);
+            }
+            recorder.setCaptureRegion(captureRegion);
+        } catch (IllegalArgumentException e) {
+            logger.warn(e.getMessage());
+            logger.info("Defaulting to recording the whole screen.");
+        }
+
+        try {
+            recorder.setFrameSource(CommandLineArguments.parseSource(cla.getSource()));
+        } catch (IllegalArgumentException e) {
+            logger.error(e.getMessage());
+            return;
+        }
+
+        if (cla.getRecordFor() > 0) {
+            // no hotkeys are needed, so this also works on machines without a display
+            recordFor(recorder, cla.getRecordFor());
+            return;
+        }
+
         KeyStroke key = CommandLineArguments.parseKey(cla.getKey());
 
         Provider provider = Provider.getCurrentProvider(false);
@@ -73,4 +113,24 @@ public class Main {
         logger.info("Listening for commands...");
     }
 
+    /**
+     * records until the time is up or the frame source runs out of frames, then builds the gif
+     */
+    private static void recordFor(ScreenRecorderManager recorder, int seconds) {
+        final long endTime = System.currentTimeMillis() + seconds * 1000L;
+        recorder.startRecording();
+        try {
+            while (System.currentTimeMillis() < endTime && !recorder.isSourceExhausted()) {
+                Thread.sleep(20);
+            }
+        } catch (InterruptedException e) {
+            e.printStackTrace();
+        }
+        recorder.stopRecording();
+        recorder.shutdown();
+        if (recorder.getFrameSource() != null) {
+            recorder.getFrameSource().close();
+        }
+    }
+
 }
@@ -0,0 +1,50 @@
+package com.zackmurry.gifngo.converter;
+
+/**
+ * remembers which color table index each color was mapped to, so that colors that show up again
+ * (which is most of them in screen recordings) don't have to search the quantizer's network again.
+ * unlike a lookup table with fewer bits per channel, this only returns the exact result for a color,
+ * so the output is the same as mapping every pixel with the quantizer.
+ *
+ * the cache is direct-mapped: each color can only be in one slot, and a color that lands on a slot
+ * replaces whatever was there. each encoding thread has its own cache, which is reused for every palette.
+ * entries are tagged with the palette they were mapped with, so switching palettes doesn't need to clear anything
+ */
+final class ColorIndexCache {
+
+    private static final int SLOT_BITS = 16;
+    private static final int SLOTS = 1 << SLOT_BITS;
+
+    // multiplying by an odd number is a bijection on 24-bit colors. its high bits depend on every channel,
+    // so they spread similar colors across the slots
+    private static final int MIX = 0x9e3779b1;
+
+    // a slot holds the palette id and the full color as a tag, followed by the color table index in the lowest 8 bits.
+    // palette ids start at 1, so an empty slot never matches
+    private final long[] slots = new long[SLOTS];
+
+    /**
+     * @param paletteId id of the palette the color is mapped with. see Palette
+     * @return the cached index of a color, or -1 if it isn't cached
+     */
+    int get(int paletteId, int rgb) {
+        final long slot = slots[slotOf(rgb)];
+        if (slot >>> 8 != tag(paletteId, rgb)) {
+            return -1;
+        }
+        return (int) (slot & 0xff);
+    }
+
+    void put(int paletteId, int rgb, int index) {
+        slots[slotOf(rgb)] = tag(paletteId, rgb) << 8 | index;
+    }
+
+    private static int slotOf(int rgb) {
+        return (rgb * MIX) >>> (32 - SLOT_BITS);
+    }
+
+    private static long tag(int paletteId, int rgb) {
+        return (long) paletteId << 24 | rgb;
+    }
+
+}
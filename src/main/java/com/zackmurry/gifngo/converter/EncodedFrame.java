@@ -0,0 +1,42 @@
+package com.zackmurry.gifngo.converter;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * a frame that has been quantized and LZW-compressed, but hasn't been written to the output stream yet.
+ * frames are encoded independently of each other, so these can be created on any thread and written in order later
+ */
+@Getter
+@AllArgsConstructor
+final class EncodedFrame {
+
+    private final int timeSinceStart;
+
+    // position and size of the image on the canvas
+    private final int x;
+    private final int y;
+    private final int width;
+    private final int height;
+
+    // color table of the frame in RGB order
+    private final byte[] colorTable;
+
+    private final boolean transparent;
+    private final int transparentIndex;
+
+    // initial code size, LZW sub-blocks, and block terminator
+    private final byte[] imageData;
+
+    /**
+     * @return a placeholder for a frame that's the same as the frame before it, which extends that frame's delay instead of being drawn
+     */
+    static EncodedFrame duplicate(int timeSinceStart) {
+        return new EncodedFrame(timeSinceStart, 0, 0, 0, 0, null, false, 0, null);
+    }
+
+    boolean isDuplicate() {
+        return imageData == null;
+    }
+
+}
@@ -0,0 +1,56 @@
+package com.zackmurry.gifngo.converter;
+
+import com.zackmurry.gifngo.converter.algorithms.LZWEncoder;
+import lombok.Getter;
+
+import java.util.Arrays;
+
+/**
+ * buffers that a thread reuses for every frame it encodes, so that encoding doesn't allocate
+ * anything per frame besides the compressed image data that's handed to the writer.
+ * buffers only grow, so they end up the size of the biggest frame the thread has encoded
+ */
+final class EncodingWorkspace {
+
+    @Getter
+    private final LZWEncoder encoder = new LZWEncoder();
+
+    // shared by every palette this thread maps pixels with, instead of a cache for each palette
+    @Getter
+    private final ColorIndexCache colorIndexCache = new ColorIndexCache();
+
+    private final boolean[] usedEntry = new boolean[256];
+
+    private byte[] indexedPixels = new byte[0];
+    private byte[] encodedData = new byte[0];
+
+    /**
+     * @return a buffer for the color table indexes of at least this many pixels
+     */
+    byte[] indexedPixels(int pixelCount) {
+        if (indexedPixels.length < pixelCount) {
+            indexedPixels = new byte[pixelCount];
+        }
+        return indexedPixels;
+    }
+
+    /**
+     * @return a buffer big enough for the LZW-compressed data of this many pixels
+     */
+    byte[] encodedData(int pixelCount) {
+        final int size = LZWEncoder.maxEncodedSize(pixelCount);
+        if (encodedData.length < size) {
+            encodedData = new byte[size];
+        }
+        return encodedData;
+    }
+
+    /**
+     * @return which color table entries are used by the frame, cleared for a new frame
+     */
+    boolean[] usedEntry() {
+        Arrays.fill(usedEntry, false);
+        return usedEntry;
+    }
+
+}
@@ -0,0 +1,92 @@
+package com.zackmurry.gifngo.converter;
+
+import lombok.Getter;
+
+import java.util.Arrays;
+
+/**
+ * rectangle of a frame that's drawn on the canvas, along with its pixels.
+ * for delta encoding, this is the bounding box of the pixels that changed since the previous frame,
+ * and the pixels that didn't change are marked so that they can be made transparent
+ */
+@Getter
+final class FrameRegion {
+
+    private final int x;
+    private final int y;
+    private final int width;
+    private final int height;
+
+    // pixels of the region in BGR order
+    private final byte[] pixels;
+
+    // whether each pixel is the same as in the previous frame, or null if every pixel should be drawn
+    private final boolean[] unchanged;
+
+    private FrameRegion(int x, int y, int width, int height, byte[] pixels, boolean[] unchanged) {
+        this.x = x;
+        this.y = y;
+        this.width = width;
+        this.height = height;
+        this.pixels = pixels;
+        this.unchanged = unchanged;
+    }
+
+    /**
+     * @return a region covering the whole frame
+     */
+    static FrameRegion full(byte[] pixels, int width, int height) {
+        return new FrameRegion(0, 0, width, height, pixels, null);
+    }
+
+    /**
+     * finds the bounding box of the pixels that are different between two frames of the same size
+     * @param previous pixels of the previous frame in BGR order
+     * @param current pixels of the current frame in BGR order
+     * @return the region of the current frame that changed. if nothing changed, this is the top-left pixel, marked as unchanged
+     */
+    static FrameRegion changedBetween(byte[] previous, byte[] current, int width, int height) {
+        final int rowLength = width * 3;
+        int top = -1;
+        int bottom = -1;
+        int left = width;
+        int right = -1;
+        for (int row = 0; row < height; row++) {
+            final int rowStart = row * rowLength;
+            final int mismatch = Arrays.mismatch(previous, rowStart, rowStart + rowLength, current, rowStart, rowStart + rowLength);
+            if (mismatch < 0) {
+                continue;
+            }
+            if (top < 0) {
+                top = row;
+            }
+            bottom = row;
+            left = Math.min(left, mismatch / 3);
+            // only the part of the row right of the furthest change so far needs to be searched for the last change
+            for (int k = rowStart + rowLength - 1; k >= rowStart + (right + 1) * 3; k--) {
+                if (previous[k] != current[k]) {
+                    right = (k - rowStart) / 3;
+                    break;
+                }
+            }
+        }
+        if (top < 0) {
+            return new FrameRegion(0, 0, 1, 1, Arrays.copyOf(current, 3), new boolean[] { true });
+        }
+
+        final int regionWidth = right - left + 1;
+        final int regionHeight = bottom - top + 1;
+        final byte[] pixels = new byte[regionWidth * regionHeight * 3];
+        final boolean[] unchanged = new boolean[regionWidth * regionHeight];
+        for (int row = 0; row < regionHeight; row++) {
+            final int source = (top + row) * rowLength + left * 3;
+            System.arraycopy(current, source, pixels, row * regionWidth * 3, regionWidth * 3);
+            for (int column = 0; column < regionWidth; column++) {
+                final int k = source + column * 3;
+                unchanged[row * regionWidth + column] = previous[k] == current[k] && previous[k + 1] == current[k + 1] && previous[k + 2] == current[k + 2];
+            }
+        }
+        return new FrameRegion(left, top, regionWidth, regionHeight, pixels, unchanged);
+    }
+
+}
@@ -2,8 +2,8 @@ package com.zackmurry.gifngo.converter;
 
 import com.zackmurry.gifngo.Constants;
 import com.zackmurry.gifngo.models.Frame;
-import com.zackmurry.gifngo.converter.algorithms.LZWEncoder;
-import com.zackmurry.gifngo.converter.algorithms.NeuQuant;
+import com.zackmurry.gifngo.converter.algorithms.ColorHistogram;
+import com.zackmurry.gifngo.converter.algorithms.QuantizerType;
 import lombok.Getter;
 import lombok.Setter;
 import org.slf4j.Logger;
@@ -13,10 +13,21 @@ import java.awt.*;
 import java.awt.image.BufferedImage;
 import java.awt.image.DataBufferByte;
 import java.io.*;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * Class that converts a list of BufferedImages into a GIF89a format (https://www.w3.org/Graphics/GIF/spec-gif89a.txt)
+ * frames can either be given all at once through setFrames() and process(), or be streamed in with begin(), append(), and finish()
  * some logic taken from here: http://www.java2s.com/Code/Java/2D-Graphics-GUI/AnimatedGifEncoder.htm
  */
 public final class GifConverter implements VideoProducer {
@@ -46,9 +57,14 @@ public final class GifConverter implements VideoProducer {
     @Setter
     private boolean shouldCloseStream = true;
 
+    // map every frame to one palette that's written once in the logical screen descriptor, instead of giving each frame its own
     @Setter
     private boolean useGlobalColorTable;
 
+    // number of frames that the global palette is trained on. when streaming frames in, the first frames are used
+    @Getter @Setter
+    private int globalPaletteSampleFrames = 16;
+
     // how many times the gif should repeat. 0 is infinitely many times (a repeat value of 3 will play the GIF 3 times)
     // doesn't just copy the gif over and over -- uses NetScape extension to do this
     // see writeNetscapeExt() for more info
@@ -66,15 +82,65 @@ public final class GifConverter implements VideoProducer {
     @Getter @Setter
     private int disposalMethod = -1;
 
+    // algorithm that picks the colors of each palette. NeuQuant gives the best colors, while Wu and octree are faster
+    @Getter @Setter
+    private QuantizerType quantizerType = QuantizerType.NEUQUANT;
+
+    // number of threads to quantize and compress frames on. frames are written in the same order (and with the same bytes) either way
+    @Getter @Setter
+    private int encodingThreads = 1;
+
+    // keep mapping frames to the same palette until their colors are too different from the frame it was trained on.
+    // the first palette is written as the global color table, so frames that use it don't need their own color table
+    @Setter
+    private boolean reusePalette;
+
+    // how different the colors of a frame can be from the frame the current palette was trained on, from 0 (identical) to 1.
+    // only used if reusePalette is set
+    @Getter @Setter
+    private double sceneChangeThreshold = 0.05;
+
+    // frames that are exactly the same as the frame before them aren't encoded. the previous frame's delay is extended instead
+    @Setter
+    private boolean skipDuplicateFrames;
+
+    // only draw the part of each frame that changed since the previous frame, and make the pixels in it that didn't change transparent.
+    // not used if transparentColor is set, since the transparent color would show whatever was drawn before it
+    @Setter
+    private boolean deltaEncoding;
+
+    private boolean began;
+    private boolean appendedFirstFrame;
+    private boolean finished;
+    private ExecutorService encodingPool; // null when encoding on the appending thread
+    private Executor encodingExecutor;
+    private final Deque<Future<EncodedFrame>> pendingFrames = new ArrayDeque<>();
+    // each thread that encodes frames reuses its own buffers and LZW encoder
+    private final ThreadLocal<EncodingWorkspace> encodingWorkspace = ThreadLocal.withInitial(EncodingWorkspace::new);
+
+    // palette that frames are currently being mapped to and the histogram of the frame it was trained on (when reusing palettes)
+    private CompletableFuture<Palette> currentPalette;
+    private ColorHistogram currentPaletteHistogram;
+    private int trainedPalettes;
+
+    private CompletableFuture<Palette> globalPalette;
+
+    private byte[] previousPixels; // pixels of the last frame appended, for delta encoding
+    private final List<Frame> globalPaletteSamples = new ArrayList<>();
+
     private boolean encounteredError;
-    private byte[] colorTable;
-    private int colorDepth; // number of bit planes
-    private final boolean[] usedEntry = new boolean[256];
+    private byte[] globalColorTable; // color table written after the logical screen descriptor, or null if there isn't one
+    private final int colorDepth = 8; // number of bit planes
     private int previousFrameTime;
+    private boolean wroteFirstFrame;
+
+    // the last frame encoded is held back until the next one, since duplicates of it extend its delay
+    private EncodedFrame heldFrame;
+    private int heldFrameEndTime; // time of the last duplicate of the held frame, or of the frame itself
+    private int skippedDuplicateFrames;
 
     // size of color table palette is 256, but decoder uses raises two to the power of (palSize + 1) to find palette size
     private int palSize = 7;
-    private int transparentIndex; // index of transparent in color table
 
     public GifConverter() {
 
@@ -104,6 +170,42 @@ public final class GifConverter implements VideoProducer {
             return false;
         }
 
+        if (!begin()) {
+            return false;
+        }
+        if (useGlobalColorTable) {
+            // every frame is known up front, so the global palette can be sampled from across the whole gif
+            doFirstFrameProcessing(frames.get(0));
+            final List<Frame> samples = new ArrayList<>();
+            final int sampleCount = Math.max(1, Math.min(globalPaletteSampleFrames, frames.size()));
+            for (int i = 0; i < sampleCount; i++) {
+                samples.add(frames.get((int) ((long) i * frames.size() / sampleCount)));
+            }
+            trainGlobalPalette(samples);
+        }
+        for (Frame frame : frames) {
+            append(frame);
+        }
+        return finish();
+    }
+
+    /**
+     * starts a gif that frames are pushed to one at a time with append(), rather than being given all at once with setFrames().
+     * the header is written immediately, and each frame is written as soon as it has been encoded,
+     * so only a few frames are held in memory at a time
+     * @return boolean representing if the header was written successfully
+     */
+    @Override
+    public boolean begin() {
+        if (began) {
+            logger.error("Cannot begin a GIF that has already begun.");
+            return false;
+        }
+        if (encounteredError || outputStream == null) {
+            return false;
+        }
+        began = true;
+
         // write header: animated GIF standard
         try {
             writeString("GIF89a");
@@ -113,14 +215,177 @@ public final class GifConverter implements VideoProducer {
             encounteredError = true;
         }
 
-        if (frames == null || frames.size() == 0) {
+        if (deltaEncoding && transparentColor != null) {
+            logger.warn("Delta encoding can't be used with a transparent color. Drawing every frame in full...");
+        }
+
+        if (encodingThreads > 1) {
+            encodingPool = Executors.newFixedThreadPool(encodingThreads, runnable -> {
+                // daemon threads so that an abandoned gif doesn't keep the program running
+                Thread thread = new Thread(runnable, "gif-encoder");
+                thread.setDaemon(true);
+                return thread;
+            });
+            encodingExecutor = encodingPool;
+        } else {
+            encodingExecutor = Runnable::run;
+        }
+        return !encounteredError;
+    }
+
+    /**
+     * encodes a frame and writes it to the output stream. frames should be appended in the order that they are played in.
+     * when encoding on multiple threads, this returns once the frame has been handed to a worker, and only blocks
+     * if the workers are more than a couple of frames behind
+     * @param frame frame to add to the end of the gif
+     * @return boolean representing if the gif is still error-free
+     */
+    @Override
+    public boolean append(Frame frame) {
+        if (!began || finished) {
+            logger.error("Frames can only be appended between calls to begin() and finish().");
+            return false;
+        }
+        if (frame == null) {
+            encounteredError = true;
             return false;
         }
+        if (!appendedFirstFrame) {
+            doFirstFrameProcessing(frame);
+            appendedFirstFrame = true;
+        }
 
-        doFirstFrameProcessing();
+        if (useGlobalColorTable && globalPalette == null) {
+            // the first frames are held back until there are enough of them to train the global palette on
+            globalPaletteSamples.add(frame);
+            if (globalPaletteSamples.size() >= globalPaletteSampleFrames) {
+                flushGlobalPaletteSamples();
+            }
+            return !encounteredError;
+        }
 
-        for (int i = 1; i < frames.size(); i++) {
-            processFrame(frames.get(i));
+        encodeAndWrite(frame);
+        return !encounteredError;
+    }
+
+    private void encodeAndWrite(Frame frame) {
+        final int timeSinceStart = frame.getTimeSinceStart();
+        if (skipDuplicateFrames || isDeltaEncoding() || reusePalette) {
+            // these depend on the frames before this one, so they're worked out here, in order
+            final byte[] pixels = getImagePixels(frame.getImage());
+            // comparing every byte sounds slow, but this usually stops at the first few rows, and only copies of a frame get to the end
+            if (skipDuplicateFrames && previousPixels != null && Arrays.equals(previousPixels, pixels)) {
+                pendingFrames.add(CompletableFuture.completedFuture(EncodedFrame.duplicate(timeSinceStart)));
+                skippedDuplicateFrames++;
+                writeEncodedFrames();
+                return;
+            }
+            final FrameRegion region = isDeltaEncoding() && previousPixels != null
+                    ? FrameRegion.changedBetween(previousPixels, pixels, width, height)
+                    : FrameRegion.full(pixels, width, height);
+            previousPixels = pixels;
+
+            // the palette comes from the whole frame, not just the changed region, so that a small region doesn't
+            // get a palette that only fits itself or swap out a reused palette that still fits the rest of the frame
+            final CompletableFuture<Palette> palette;
+            if (globalPalette != null) {
+                palette = globalPalette;
+            } else if (reusePalette) {
+                palette = choosePalette(pixels);
+            } else {
+                palette = CompletableFuture.supplyAsync(() -> Palette.train(pixels, quantizationSample, quantizerType), encodingExecutor);
+                trainedPalettes++;
+            }
+            pendingFrames.add(palette.thenApplyAsync(p -> encodeFrame(timeSinceStart, region, p), encodingExecutor));
+        } else if (globalPalette != null) {
+            pendingFrames.add(globalPalette.thenApplyAsync(palette -> encodeFrame(timeSinceStart, FrameRegion.full(getImagePixels(frame.getImage()), width, height), palette), encodingExecutor));
+        } else {
+            pendingFrames.add(CompletableFuture.supplyAsync(() -> {
+                byte[] pixels = getImagePixels(frame.getImage());
+                return encodeFrame(timeSinceStart, FrameRegion.full(pixels, width, height), Palette.train(pixels, quantizationSample, quantizerType));
+            }, encodingExecutor));
+            trainedPalettes++;
+        }
+
+        writeEncodedFrames();
+    }
+
+    /**
+     * writes frames that are done encoding. only a few frames per worker are encoded ahead of the writer
+     * so that the encoded frames don't pile up in memory, so this waits for the oldest frames if there are too many
+     */
+    private void writeEncodedFrames() {
+        final int maxPendingFrames = encodingPool == null ? 1 : encodingThreads * 2;
+        while (pendingFrames.size() >= maxPendingFrames) {
+            writeFrame(awaitEncodedFrame(pendingFrames.poll()));
+        }
+    }
+
+    private void flushGlobalPaletteSamples() {
+        trainGlobalPalette(globalPaletteSamples);
+        for (Frame sample : globalPaletteSamples) {
+            encodeAndWrite(sample);
+        }
+        globalPaletteSamples.clear();
+    }
+
+    /**
+     * trains the palette that every frame is mapped to on pixels taken from a few frames.
+     * each frame contributes an evenly spaced share of its pixels, so training costs about as much as training on a single frame
+     * @param samples frames to take pixels from
+     */
+    private void trainGlobalPalette(List<Frame> samples) {
+        final int stride = samples.size();
+        final byte[] sampledPixels = new byte[3 * (width * height / stride + 1) * stride];
+        int length = 0;
+        for (int i = 0; i < samples.size(); i++) {
+            final byte[] pixels = getImagePixels(samples.get(i).getImage());
+            // start each frame at a different offset so that the frames don't all contribute the same positions
+            for (int k = 3 * (i % stride); k + 2 < pixels.length; k += 3 * stride) {
+                sampledPixels[length++] = pixels[k];
+                sampledPixels[length++] = pixels[k + 1];
+                sampledPixels[length++] = pixels[k + 2];
+            }
+        }
+        final byte[] trainingPixels = Arrays.copyOf(sampledPixels, length);
+        globalPalette = CompletableFuture.supplyAsync(() -> Palette.train(trainingPixels, quantizationSample, quantizerType), encodingExecutor);
+        trainedPalettes++;
+        logger.debug("Training global palette on pixels from {} frame{}.", samples.size(), samples.size() != 1 ? "s" : "");
+    }
+
+    /**
+     * writes the frames that are still being encoded, then the gif trailer, and closes the stream if shouldCloseStream is set
+     * @return boolean representing if the converting succeeded
+     */
+    @Override
+    public boolean finish() {
+        if (!began || finished) {
+            logger.error("Cannot finish a GIF that hasn't begun or has already finished.");
+            return false;
+        }
+        finished = true;
+
+        try {
+            if (!globalPaletteSamples.isEmpty()) {
+                flushGlobalPaletteSamples();
+            }
+            while (!pendingFrames.isEmpty()) {
+                writeFrame(awaitEncodedFrame(pendingFrames.poll()));
+            }
+            writeHeldFrame();
+        } finally {
+            if (encodingPool != null) {
+                encodingPool.shutdownNow();
+            }
+        }
+
+        if (!appendedFirstFrame) {
+            logger.warn("No frames were appended to the GIF.");
+            encounteredError = true;
+        }
+        logger.debug("Trained {} palette{} for the GIF.", trainedPalettes, trainedPalettes != 1 ? "s" : "");
+        if (skippedDuplicateFrames > 0) {
+            logger.debug("Skipped {} duplicate frame{}.", skippedDuplicateFrames, skippedDuplicateFrames != 1 ? "s" : "");
         }
 
         try {
@@ -140,99 +405,189 @@ public final class GifConverter implements VideoProducer {
         return !encounteredError;
     }
 
-    private void processFrame(Frame frame) {
-        if (frame == null) {
-            encounteredError = true;
-            return;
+    private EncodedFrame awaitEncodedFrame(Future<EncodedFrame> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.error("Interrupted while waiting for a frame to be encoded.");
+        } catch (ExecutionException e) {
+            logger.error("Error encoding a frame. Trying to continue...", e.getCause());
         }
+        return null;
+    }
 
-        byte[] pixels = getImagePixels(frame.getImage());
-        byte[] indexedPixels = analyzePixels(pixels);
-        try {
-            writeGraphicControlExt((int) Math.round((frame.getTimeSinceStart() - previousFrameTime) / 10d));
-            previousFrameTime = frame.getTimeSinceStart();
-            writeImageDescriptor();
-            if (!useGlobalColorTable) {
-                writePalette();
+    /**
+     * decides whether a frame can be mapped to the current palette, or if a new palette should be trained on it
+     * @param pixels pixels of the frame in BGR order
+     * @return the palette to map the frame to, which may still be training
+     */
+    private CompletableFuture<Palette> choosePalette(byte[] pixels) {
+        final ColorHistogram histogram = ColorHistogram.of(pixels, quantizationSample);
+        if (currentPalette != null && histogram.distance(currentPaletteHistogram) <= sceneChangeThreshold) {
+            return currentPalette;
+        }
+        currentPaletteHistogram = histogram;
+        currentPalette = CompletableFuture.supplyAsync(() -> Palette.train(pixels, quantizationSample, quantizerType), encodingExecutor);
+        trainedPalettes++;
+        return currentPalette;
+    }
+
+    /**
+     * maps a region of a frame to a palette and compresses it without touching the output stream, so this is safe to call
+     * from any thread once the width and height have been determined
+     * @return the encoded frame
+     */
+    private EncodedFrame encodeFrame(int timeSinceStart, FrameRegion region, Palette palette) {
+        final EncodingWorkspace workspace = encodingWorkspace.get();
+        final int pixelCount = region.getWidth() * region.getHeight();
+        boolean[] usedEntry = workspace.usedEntry();
+        byte[] indexedPixels = workspace.indexedPixels(pixelCount);
+        analyzePixels(region.getPixels(), region.getUnchanged(), palette, workspace.getColorIndexCache(), indexedPixels, usedEntry);
+        byte[] frameColorTable = palette.getColorTable();
+
+        boolean transparent = transparentColor != null;
+        int frameTransparentIndex = transparent ? findClosest(transparentColor, frameColorTable, usedEntry) : 0;
+        if (region.getUnchanged() != null) {
+            // pixels that haven't changed are made transparent so the previous frame shows through,
+            // which needs a color table entry that no other pixel uses
+            frameTransparentIndex = findUnusedEntry(usedEntry);
+            transparent = frameTransparentIndex >= 0;
+            if (transparent) {
+                for (int i = 0; i < pixelCount; i++) {
+                    if (region.getUnchanged()[i]) {
+                        indexedPixels[i] = (byte) frameTransparentIndex;
+                    }
+                }
+            } else {
+                // every entry is used, so the pixels that didn't change are drawn again instead
+                analyzePixels(region.getPixels(), null, palette, workspace.getColorIndexCache(), indexedPixels, usedEntry);
+                frameTransparentIndex = 0;
             }
-            writePixels(indexedPixels);
-        } catch (IOException e) {
-            logger.error("Error writing graphic control extension for a frame. Trying to continue...");
-            e.printStackTrace();
-            encounteredError = true;
         }
 
+        final byte[] encodedData = workspace.encodedData(pixelCount);
+        final int encodedLength = workspace.getEncoder().encode(indexedPixels, pixelCount, colorDepth, encodedData);
+        // the workspace is reused for the next frame while this one waits to be written, so the data is copied out
+        return new EncodedFrame(timeSinceStart, region.getX(), region.getY(), region.getWidth(), region.getHeight(),
+                frameColorTable, transparent, frameTransparentIndex, Arrays.copyOf(encodedData, encodedLength));
     }
 
-    private void doFirstFrameProcessing() {
-        try {
+    /**
+     * @return the index of a color table entry that isn't used, or -1 if every entry is used
+     */
+    private static int findUnusedEntry(boolean[] usedEntry) {
+        for (int i = 0; i < usedEntry.length; i++) {
+            if (!usedEntry[i]) {
+                return i;
+            }
+        }
+        return -1;
+    }
 
-            Frame firstFrame = frames.get(0);
+    private void writeFrame(EncodedFrame frame) {
+        if (frame == null) {
+            encounteredError = true;
+            return;
+        }
+        if (frame.isDuplicate()) {
+            // the frame before this one stays on screen for longer instead
+            heldFrameEndTime = frame.getTimeSinceStart();
+            return;
+        }
+        writeHeldFrame();
+        heldFrame = frame;
+        heldFrameEndTime = frame.getTimeSinceStart();
+    }
 
-            if (width == 0) {
-                width = firstFrame.getImage().getWidth();
-            }
-            if (height == 0) {
-                height = firstFrame.getImage().getHeight();
-            }
+    /**
+     * writes the frame that was held back to see if the frames after it are duplicates of it
+     */
+    private void writeHeldFrame() {
+        if (heldFrame == null) {
+            return;
+        }
+        final EncodedFrame frame = heldFrame;
+        heldFrame = null;
 
-            if (useGlobalColorTable) {
-                writePalette();
+        try {
+            if (!wroteFirstFrame) {
+                writeScreenHeader(frame);
             }
-
-            try {
-                writeLogicalScreenDescriptor();
-            } catch (IOException e) {
-                logger.error("Error writing logical screen descriptor.");
-                e.printStackTrace();
-                encounteredError = true;
+            // the first frame is delayed by its time since the start of the recording
+            int delay = wroteFirstFrame
+                    ? (int) Math.round((heldFrameEndTime - previousFrameTime) / 10d)
+                    : frame.getTimeSinceStart() + (int) Math.round((heldFrameEndTime - frame.getTimeSinceStart()) / 10d);
+            writeGraphicControlExt(delay, frame.isTransparent(), frame.getTransparentIndex());
+            previousFrameTime = heldFrameEndTime;
+            wroteFirstFrame = true;
+            // frames share the global color table by sharing the same array, not just the same colors
+            boolean hasLocalColorTable = frame.getColorTable() != globalColorTable;
+            writeImageDescriptor(frame, hasLocalColorTable);
+            if (hasLocalColorTable) {
+                writePalette(frame.getColorTable());
             }
+            outputStream.write(frame.getImageData());
+        } catch (IOException e) {
+            logger.error("Error writing a frame. Trying to continue...");
+            e.printStackTrace();
+            encounteredError = true;
+        }
+    }
 
-            if (repeat == 0 || repeat > 1) {
-                writeNetscapeExt();
-            }
+    private void doFirstFrameProcessing(Frame firstFrame) {
+        if (width == 0) {
+            width = firstFrame.getImage().getWidth();
+        }
+        if (height == 0) {
+            height = firstFrame.getImage().getHeight();
+        }
+    }
 
-            byte[] pixels = getImagePixels(firstFrame.getImage());
-            byte[] indexedPixels = analyzePixels(pixels);
+    /**
+     * writes the logical screen descriptor, global color table, and looping extension.
+     * this waits until the first frame is encoded so that its color table can be used as the global color table
+     */
+    private void writeScreenHeader(EncodedFrame firstFrame) throws IOException {
+        if (reusePalette || useGlobalColorTable) {
+            globalColorTable = firstFrame.getColorTable();
+        }
 
-            writeGraphicControlExt(firstFrame.getTimeSinceStart());
-            previousFrameTime = firstFrame.getTimeSinceStart();
-            writeImageDescriptor();
-            if (!useGlobalColorTable) {
-                writePalette();
-            }
-            writePixels(indexedPixels);
+        try {
+            writeLogicalScreenDescriptor();
         } catch (IOException e) {
-            logger.error("Error processing first frame.");
+            logger.error("Error writing logical screen descriptor.");
+            e.printStackTrace();
             encounteredError = true;
         }
+
+        if (globalColorTable != null) {
+            writePalette(globalColorTable);
+        }
+
+        if (repeat == 0 || repeat > 1) {
+            writeNetscapeExt();
+        }
     }
 
-    private byte[] analyzePixels(byte[] pixels) {
+    /**
+     * maps each pixel to the index of its closest color in the palette
+     * @param pixels pixels of the frame in BGR order
+     * @param skip pixels that don't need to be mapped, or null to map every pixel
+     * @param cache color index cache of the current thread
+     * @param indexedPixels output array for the color table index of each pixel
+     * @param usedEntry output array marking which entries of the color table are used
+     */
+    private void analyzePixels(byte[] pixels, boolean[] skip, Palette palette, ColorIndexCache cache, byte[] indexedPixels, boolean[] usedEntry) {
         int numPixels = pixels.length / 3;
-        byte[] indexedPixels = new byte[numPixels];
-        // preferably turn NeuQuant.process into a static method so that i can just do NeuQuant.process(pixels, pixels.length, sample)
-        NeuQuant neuQuant = new NeuQuant(pixels, pixels.length, quantizationSample);
-        colorTable = neuQuant.process();
-        // convert map from BGR to RGB
-        for (int i = 0; i < colorTable.length; i += 3) {
-            byte temp = colorTable[i];
-            colorTable[i] = colorTable[i+2];
-            colorTable[i+2] = temp;
-            usedEntry[i/3] = false;
-        }
-        // map pixels to new palette
-        for (int i = 0, k = 0; i < numPixels; i++) {
-            int index = neuQuant.map(pixels[k++] & 0xff, pixels[k++] & 0xff, pixels[k++] & 0xff);
+        for (int i = 0, k = 0; i < numPixels; i++, k += 3) {
+            if (skip != null && skip[i]) {
+                continue;
+            }
+            int index = palette.map(pixels[k] & 0xff, pixels[k + 1] & 0xff, pixels[k + 2] & 0xff, cache);
             usedEntry[index] = true;
             indexedPixels[i] = (byte) index;
         }
-        colorDepth = 8;
-        palSize = 7;
-        if (transparentColor != null) {
-            transparentIndex = findClosest(transparentColor);
-        }
-        return indexedPixels;
     }
 
     private byte[] getImagePixels(BufferedImage image) {
@@ -246,7 +601,7 @@ public final class GifConverter implements VideoProducer {
         return ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
     }
 
-    private void writePalette() throws IOException {
+    private void writePalette(byte[] colorTable) throws IOException {
         outputStream.write(colorTable, 0, colorTable.length);
         int n = (3 * 256) - colorTable.length;
         // filling rest of color table if room left
@@ -255,7 +610,7 @@ public final class GifConverter implements VideoProducer {
         }
     }
 
-    private int findClosest(Color color) {
+    private int findClosest(Color color, byte[] colorTable, boolean[] usedEntry) {
         if (colorTable == null) {
             return -1;
         }
@@ -277,29 +632,24 @@ public final class GifConverter implements VideoProducer {
         return minPos;
     }
 
-    private void writePixels(byte[] indexedPixels) throws IOException {
-        LZWEncoder encoder = new LZWEncoder(width, height, indexedPixels, colorDepth);
-        encoder.encode(outputStream);
-    }
-
     // see chapter 20 of GIF89a specification
-    private void writeImageDescriptor() throws IOException {
+    private void writeImageDescriptor(EncodedFrame frame, boolean hasLocalColorTable) throws IOException {
         // write image separator (it's always 0x2c)
         outputStream.write(0x2c);
 
-        // top-left of image is at 0,0
-        writeShort(0); // left offset
-        writeShort(0); // top offset
+        // position of the top-left of the image on the canvas. this is 0,0 unless only part of the frame changed
+        writeShort(frame.getX()); // left offset
+        writeShort(frame.getY()); // top offset
 
-        writeShort(width);
-        writeShort(height);
+        writeShort(frame.getWidth());
+        writeShort(frame.getHeight());
 
         // write a flags for normal local color table (LCT)
-        outputStream.write(0b10000000 | // bit 1: local color table flag
+        outputStream.write((hasLocalColorTable ? 0b10000000 : 0) | // bit 1: local color table flag
                 0 | // bit 2: no interlace
                 0 | // bit 3: no sorting of color table
                 0 | // bits 4-5: reserved by specification
-                palSize); // bits 6-8: size of color table
+                (hasLocalColorTable ? palSize : 0)); // bits 6-8: size of color table (zero if there isn't one)
 
     }
 
@@ -337,7 +687,7 @@ public final class GifConverter implements VideoProducer {
      * see http://www.matthewflickinger.com/lab/whatsinagif/bits_and_bytes.asp#graphics_control_extension_block
      * and https://www.w3.org/Graphics/GIF/spec-gif89a.txt at 25
      */
-    private void writeGraphicControlExt(int time) throws IOException {
+    private void writeGraphicControlExt(int time, boolean transparent, int transparentIndex) throws IOException {
         // write extension header
         outputStream.write(0x21);
 
@@ -350,7 +700,11 @@ public final class GifConverter implements VideoProducer {
         int transparentFlag;
         int disposalBits;
 
-        if (transparentColor == null) {
+        if (isDeltaEncoding()) {
+            // frames only cover what changed, so the previous frame has to stay on the canvas
+            transparentFlag = transparent ? 1 : 0;
+            disposalBits = 1; // don't dispose
+        } else if (transparentColor == null) {
             transparentFlag = 0;
             disposalBits = 0; // dispose = no action
         } else {
@@ -389,7 +743,7 @@ public final class GifConverter implements VideoProducer {
         writeShort(height);
 
         // definitely see http://www.matthewflickinger.com/lab/whatsinagif/bits_and_bytes.asp#logical_screen_descriptor_block for more info on this packed byte
-        outputStream.write((useGlobalColorTable ? 0x80 : 0x00) | // global color table flag (0x80 for use GCT and 0x00 for don't)
+        outputStream.write((globalColorTable != null ? 0x80 : 0x00) | // global color table flag (0x80 for use GCT and 0x00 for don't)
                 0x70 | // color resolution = 7
                 0x00 | // no gct sort flag (indicates that the color table is in random order, not in order of decreasing importance)
                 palSize // gct
@@ -414,6 +768,25 @@ public final class GifConverter implements VideoProducer {
         return useGlobalColorTable;
     }
 
+    @Override
+    public boolean getSkipDuplicateFrames() {
+        return skipDuplicateFrames;
+    }
+
+    @Override
+    public boolean getDeltaEncoding() {
+        return deltaEncoding;
+    }
+
+    private boolean isDeltaEncoding() {
+        return deltaEncoding && transparentColor == null;
+    }
+
+    @Override
+    public boolean getReusePalette() {
+        return reusePalette;
+    }
+
     @Override
     public boolean getShouldCloseStream() {
         return shouldCloseStream;
@@ -426,7 +799,7 @@ public final class GifConverter implements VideoProducer {
 
     @Override
     public boolean isReady() {
-        return !encounteredError && frames.size() > 0 && outputStream != null;
+        return !encounteredError && frames != null && frames.size() > 0 && outputStream != null;
     }
 
     /**
@@ -439,10 +812,17 @@ public final class GifConverter implements VideoProducer {
         GifConverter clone = new GifConverter();
         clone.setRepeat(repeat);
         clone.setQuantizationSample(quantizationSample);
+        clone.setQuantizerType(quantizerType);
         clone.setTransparentColor(transparentColor);
         clone.setShouldCloseStream(shouldCloseStream);
         clone.setDisposalMethod(disposalMethod);
         clone.setUseGlobalColorTable(useGlobalColorTable);
+        clone.setGlobalPaletteSampleFrames(globalPaletteSampleFrames);
+        clone.setEncodingThreads(encodingThreads);
+        clone.setReusePalette(reusePalette);
+        clone.setDeltaEncoding(deltaEncoding);
+        clone.setSkipDuplicateFrames(skipDuplicateFrames);
+        clone.setSceneChangeThreshold(sceneChangeThreshold);
         return clone;
     }
 }
@@ -0,0 +1,67 @@
+package com.zackmurry.gifngo.converter;
+
+import com.zackmurry.gifngo.converter.algorithms.ExactQuantizer;
+import com.zackmurry.gifngo.converter.algorithms.Quantizer;
+import com.zackmurry.gifngo.converter.algorithms.QuantizerType;
+import lombok.Getter;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * a trained color table and the quantizer used to map pixels to it.
+ * a palette isn't modified after it's trained, so it can be shared between frames that are encoded on different threads
+ */
+final class Palette {
+
+    private final Quantizer quantizer;
+
+    private static final AtomicInteger nextId = new AtomicInteger(1);
+
+    // tells the entries of different palettes apart in a ColorIndexCache
+    private final int id = nextId.getAndIncrement();
+
+    // color table in RGB order
+    @Getter
+    private final byte[] colorTable;
+
+    private Palette(Quantizer quantizer, byte[] colorTable) {
+        this.quantizer = quantizer;
+        this.colorTable = colorTable;
+    }
+
+    /**
+     * trains a palette on the colors of an image. if the image has 256 colors or fewer, the palette is exactly those colors instead
+     * @param pixels pixels of the image in BGR order
+     * @param sample quantization sample. see NeuQuant
+     * @param quantizerType algorithm used to pick the colors
+     */
+    static Palette train(byte[] pixels, int sample, QuantizerType quantizerType) {
+        Quantizer quantizer = ExactQuantizer.forPixels(pixels);
+        if (quantizer == null) {
+            quantizer = quantizerType.create(pixels, sample);
+        }
+        byte[] colorTable = quantizer.process();
+        // convert map from BGR to RGB
+        for (int i = 0; i < colorTable.length; i += 3) {
+            byte temp = colorTable[i];
+            colorTable[i] = colorTable[i+2];
+            colorTable[i+2] = temp;
+        }
+        return new Palette(quantizer, colorTable);
+    }
+
+    /**
+     * @param cache cache of the thread doing the mapping
+     * @return index of the color in the color table closest to the given color
+     */
+    int map(int b, int g, int r, ColorIndexCache cache) {
+        final int rgb = r << 16 | g << 8 | b;
+        int index = cache.get(id, rgb);
+        if (index < 0) {
+            index = quantizer.map(b, g, r);
+            cache.put(id, rgb, index);
+        }
+        return index;
+    }
+
+}
@@ -1,5 +1,6 @@
 package com.zackmurry.gifngo.converter;
 
+import com.zackmurry.gifngo.converter.algorithms.QuantizerType;
 import com.zackmurry.gifngo.models.Frame;
 
 import java.awt.*;
@@ -11,6 +12,12 @@ public interface VideoProducer {
 
     boolean process();
 
+    // streaming alternative to process(): the output is written as frames are appended, so the frames don't all need to be in memory.
+    // frames should be appended from one thread, in order, and a producer can only be used for one video
+    boolean begin();
+    boolean append(Frame frame);
+    boolean finish();
+
     void setWidth(int width);
     int getWidth();
 
@@ -20,6 +27,9 @@ public interface VideoProducer {
     void setUseGlobalColorTable(boolean useGlobalColorTable);
     boolean getUseGlobalColorTable();
 
+    void setGlobalPaletteSampleFrames(int globalPaletteSampleFrames);
+    int getGlobalPaletteSampleFrames();
+
     void setShouldCloseStream(boolean closeStream);
     boolean getShouldCloseStream();
 
@@ -29,12 +39,30 @@ public interface VideoProducer {
     void setQuantizationSample(int sample);
     int getQuantizationSample();
 
+    void setQuantizerType(QuantizerType quantizerType);
+    QuantizerType getQuantizerType();
+
     void setRepeat(int repeat);
     int getRepeat();
 
     void setDisposalMethod(int disposalMethod);
     int getDisposalMethod();
 
+    void setEncodingThreads(int encodingThreads);
+    int getEncodingThreads();
+
+    void setSkipDuplicateFrames(boolean skipDuplicateFrames);
+    boolean getSkipDuplicateFrames();
+
+    void setDeltaEncoding(boolean deltaEncoding);
+    boolean getDeltaEncoding();
+
+    void setReusePalette(boolean reusePalette);
+    boolean getReusePalette();
+
+    void setSceneChangeThreshold(double sceneChangeThreshold);
+    double getSceneChangeThreshold();
+
     void setFrames(List<com.zackmurry.gifngo.models.Frame> frames);
     List<Frame> getFrames();
 
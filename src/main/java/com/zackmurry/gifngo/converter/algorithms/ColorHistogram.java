@@ -0,0 +1,52 @@
+package com.zackmurry.gifngo.converter.algorithms;
+
+/**
+ * coarse color histogram of an image, used to cheaply tell whether two images have similar colors.
+ * each channel is reduced to its top three bits, so colors fall into 512 bins
+ */
+public class ColorHistogram {
+
+    private static final int BITS_PER_CHANNEL = 3;
+    private static final int BINS = 1 << (3 * BITS_PER_CHANNEL);
+
+    private final int[] bins = new int[BINS];
+    private int total;
+
+    private ColorHistogram() {
+
+    }
+
+    /**
+     * counts the colors of every sample-th pixel of an image
+     * @param pixels pixels of the image in BGR order
+     * @param sample how many pixels to advance between each pixel counted. 1 counts every pixel
+     */
+    public static ColorHistogram of(byte[] pixels, int sample) {
+        final ColorHistogram histogram = new ColorHistogram();
+        final int step = 3 * Math.max(1, sample);
+        final int shift = 8 - BITS_PER_CHANNEL;
+        for (int i = 0; i + 2 < pixels.length; i += step) {
+            int b = (pixels[i] & 0xff) >> shift;
+            int g = (pixels[i + 1] & 0xff) >> shift;
+            int r = (pixels[i + 2] & 0xff) >> shift;
+            histogram.bins[(r << (2 * BITS_PER_CHANNEL)) | (g << BITS_PER_CHANNEL) | b]++;
+            histogram.total++;
+        }
+        return histogram;
+    }
+
+    /**
+     * @return the fraction of pixels (from 0 to 1) that would have to change bins to turn one histogram into the other
+     */
+    public double distance(ColorHistogram other) {
+        if (total == 0 || other.total == 0) {
+            return total == other.total ? 0 : 1;
+        }
+        double sum = 0;
+        for (int i = 0; i < BINS; i++) {
+            sum += Math.abs((double) bins[i] / total - (double) other.bins[i] / other.total);
+        }
+        return sum / 2;
+    }
+
+}
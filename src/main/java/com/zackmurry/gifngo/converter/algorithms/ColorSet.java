@@ -0,0 +1,77 @@
+package com.zackmurry.gifngo.converter.algorithms;
+
+/**
+ * set of up to 256 colors that gives each color the index it was added at.
+ * the colors are kept in a small open-addressing table of ints, so adding and looking up a color doesn't allocate
+ * or box anything, and the whole table fits in a few cache lines
+ */
+final class ColorSet {
+
+    static final int MAX_COLORS = 256;
+
+    // twice as many slots as colors, so probes stay short
+    private static final int SLOT_BITS = 9;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int MIX = 0x9e3779b1;
+
+    // a slot holds a color with this bit set, so that an empty slot (zero) can't be mistaken for black
+    private static final int USED = 1 << 24;
+
+    private final int[] slots = new int[SLOTS];
+    private final byte[] indices = new byte[SLOTS];
+
+    // colors in the order they were added, in BGR order
+    private final byte[] colors = new byte[MAX_COLORS * 3];
+    private int size;
+
+    /**
+     * adds a color if it isn't already in the set
+     * @return the index of the color, or -1 if it's a new color and the set is full
+     */
+    int add(int rgb) {
+        int slot = slotOf(rgb);
+        final int key = rgb | USED;
+        while (slots[slot] != 0) {
+            if (slots[slot] == key) {
+                return indices[slot] & 0xff;
+            }
+            slot = (slot + 1) & (SLOTS - 1);
+        }
+        if (size == MAX_COLORS) {
+            return -1;
+        }
+        slots[slot] = key;
+        indices[slot] = (byte) size;
+        colors[size * 3] = (byte) rgb;
+        colors[size * 3 + 1] = (byte) (rgb >> 8);
+        colors[size * 3 + 2] = (byte) (rgb >> 16);
+        return size++;
+    }
+
+    /**
+     * @return the index of the color, or -1 if it isn't in the set
+     */
+    int indexOf(int rgb) {
+        int slot = slotOf(rgb);
+        final int key = rgb | USED;
+        while (slots[slot] != 0) {
+            if (slots[slot] == key) {
+                return indices[slot] & 0xff;
+            }
+            slot = (slot + 1) & (SLOTS - 1);
+        }
+        return -1;
+    }
+
+    /**
+     * @return the colors in the order they were added, in BGR order. unused entries at the end are black
+     */
+    byte[] getColors() {
+        return colors.clone();
+    }
+
+    private static int slotOf(int rgb) {
+        return (rgb * MIX) >>> (32 - SLOT_BITS);
+    }
+
+}
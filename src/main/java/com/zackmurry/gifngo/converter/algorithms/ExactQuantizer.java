@@ -0,0 +1,51 @@
+package com.zackmurry.gifngo.converter.algorithms;
+
+/**
+ * palette for images that don't have more than 256 colors, like terminals and flat interfaces.
+ * every color of the image gets its own entry in the color table, so nothing is lost and nothing has to be trained.
+ * colors that weren't in the image (when the palette is reused for other frames) are mapped to the closest color
+ */
+public class ExactQuantizer implements Quantizer {
+
+    private final ColorSet colors;
+    private NearestColor nearest;
+
+    private ExactQuantizer(ColorSet colors) {
+        this.colors = colors;
+    }
+
+    /**
+     * counts the colors of an image, stopping as soon as there are too many
+     * @param pixels pixels in BGR order
+     * @return a quantizer with every color of the image, or null if it has more than 256 colors
+     */
+    public static ExactQuantizer forPixels(byte[] pixels) {
+        final ColorSet colors = new ColorSet();
+        int previous = -1;
+        for (int i = 0; i + 2 < pixels.length; i += 3) {
+            final int rgb = (pixels[i + 2] & 0xff) << 16 | (pixels[i + 1] & 0xff) << 8 | (pixels[i] & 0xff);
+            // runs of the same color are common on screens, so they skip the set
+            if (rgb != previous) {
+                if (colors.add(rgb) < 0) {
+                    return null;
+                }
+                previous = rgb;
+            }
+        }
+        return new ExactQuantizer(colors);
+    }
+
+    @Override
+    public byte[] process() {
+        final byte[] colorTable = colors.getColors();
+        nearest = new NearestColor(colorTable);
+        return colorTable;
+    }
+
+    @Override
+    public int map(int b, int g, int r) {
+        final int index = colors.indexOf(r << 16 | g << 8 | b);
+        return index >= 0 ? index : nearest.map(b, g, r);
+    }
+
+}
@@ -8,15 +8,23 @@ package com.zackmurry.gifngo.converter.algorithms;
 import java.io.IOException;
 import java.io.OutputStream;
 
+/**
+ * compresses indexed pixels into GIF image data. an encoder can be reused for any number of images,
+ * so a thread that encodes many frames only allocates its hash tables once.
+ * it isn't thread-safe, so each thread should have its own
+ */
 public class LZWEncoder {
 
     private static final int EOF = -1;
 
-    private final int imgW, imgH;
+    // the encoder flushes sub-blocks at 254 bytes, like the encoder it's adapted from
+    private static final int MAX_BLOCK_SIZE = 254;
 
-    private final byte[] pixAry;
+    private int pixelCount;
 
-    private final int initCodeSize;
+    private byte[] pixAry;
+
+    private int initCodeSize;
 
     private int remaining;
 
@@ -107,34 +115,93 @@ public class LZWEncoder {
     // Number of characters so far in this 'packet'
     int a_count;
 
-    // Define the storage for the packet accumulator
-    byte[] accum = new byte[256];
+    // packets are written straight into the output buffer. the count of a packet goes before it,
+    // so a byte is saved for it when the packet starts and filled in when it's flushed
+    private byte[] out;
+
+    private int outPos;
+
+    private int countPos;
+
+    /**
+     * creates an encoder to reuse with {@link #encode(byte[], int, int, byte[])}
+     */
+    public LZWEncoder() {
+
+    }
 
     // ----------------------------------------------------------------------------
     public LZWEncoder(int width, int height, byte[] pixels, int color_depth) {
-        imgW = width;
-        imgH = height;
+        pixelCount = width * height;
         pixAry = pixels;
         initCodeSize = Math.max(2, color_depth);
     }
 
+    /**
+     * @return the most bytes that {@link #encode(byte[], int, int, byte[])} can write for an image with this many pixels
+     */
+    public static int maxEncodedSize(int pixelCount) {
+        // every pixel outputs at most one code of at most BITS bits. on top of that, there are clear codes
+        // every few thousand codes, the first clear code, the end code, and the final code
+        long codes = (long) pixelCount + pixelCount / 1024 + 4;
+        long data = (codes * BITS + 7) / 8;
+        // a count byte for each packet, the initial code size, and the block terminator
+        return (int) (data + data / MAX_BLOCK_SIZE + 1 + 2);
+    }
+
+    /**
+     * compresses an image into a buffer without allocating anything
+     * @param pixels indexes of the pixels in the color table
+     * @param pixelCount number of pixels in the image. pixels past this are ignored
+     * @param color_depth number of bits per color table index
+     * @param buffer buffer to write the image data to. it needs at least {@link #maxEncodedSize(int)} bytes
+     * @return number of bytes written to the buffer
+     */
+    public int encode(byte[] pixels, int pixelCount, int color_depth, byte[] buffer) {
+        this.pixelCount = pixelCount;
+        pixAry = pixels;
+        initCodeSize = Math.max(2, color_depth);
+        out = buffer;
+        outPos = 0;
+        try {
+            out[outPos++] = (byte) initCodeSize; // write "initial code size" byte
+
+            remaining = pixelCount; // reset navigation variables
+            curPixel = 0;
+            cur_accum = 0;
+            cur_bits = 0;
+
+            compress(initCodeSize + 1); // compress and write the pixel data
+
+            out[outPos++] = 0; // write block terminator
+            return outPos;
+        } finally {
+            // don't hold on to the caller's buffer between images
+            out = null;
+        }
+    }
+
     // Add a character to the end of the current packet, and if it is 254
     // characters, flush the packet to disk.
-    private void char_out(byte c, OutputStream outs) throws IOException {
-        accum[a_count++] = c;
-        if (a_count >= 254)
-            flush_char(outs);
+    private void char_out(byte c) {
+        if (a_count == 0) {
+            countPos = outPos++;
+        }
+        out[outPos++] = c;
+        a_count++;
+        if (a_count >= MAX_BLOCK_SIZE)
+            flush_char();
     }
 
     // Clear out the hash table
 
     // table clear for block compress
-    private void cl_block(OutputStream outs) throws IOException {
+    private void cl_block() {
         cl_hash(hsize);
         free_ent = ClearCode + 2;
         clear_flg = true;
 
-        output(ClearCode, outs);
+        output(ClearCode);
     }
 
     // reset code table
@@ -143,7 +210,7 @@ public class LZWEncoder {
             htab[i] = -1;
     }
 
-    private void compress(int init_bits, OutputStream outs) throws IOException {
+    private void compress(int init_bits) {
         int fcode;
         int i /* = 0 */;
         int c;
@@ -176,7 +243,7 @@ public class LZWEncoder {
         hsize_reg = hsize;
         cl_hash(hsize_reg); // clear hash table
 
-        output(ClearCode, outs);
+        output(ClearCode);
 
         outer_loop: while ((c = nextPixel()) != EOF) {
             fcode = (c << maxbits) + ent;
@@ -200,36 +267,29 @@ public class LZWEncoder {
                     }
                 } while (htab[i] >= 0);
             }
-            output(ent, outs);
+            output(ent);
             ent = c;
             if (free_ent < maxmaxcode) {
                 codetab[i] = free_ent++; // code -> hashtable
                 htab[i] = fcode;
             } else
-                cl_block(outs);
+                cl_block();
         }
         // Put out the final code.
-        output(ent, outs);
-        output(EOFCode, outs);
+        output(ent);
+        output(EOFCode);
     }
 
     // ----------------------------------------------------------------------------
     public void encode(OutputStream os) throws IOException {
-        os.write(initCodeSize); // write "initial code size" byte
-
-        remaining = imgW * imgH; // reset navigation variables
-        curPixel = 0;
-
-        compress(initCodeSize + 1, os); // compress and write the pixel data
-
-        os.write(0); // write block terminator
+        final byte[] buffer = new byte[maxEncodedSize(pixelCount)];
+        os.write(buffer, 0, encode(pixAry, pixelCount, initCodeSize, buffer));
     }
 
     // Flush the packet to disk, and reset the accumulator
-    private void flush_char(OutputStream outs) throws IOException {
+    private void flush_char() {
         if (a_count > 0) {
-            outs.write(a_count);
-            outs.write(accum, 0, a_count);
+            out[countPos] = (byte) a_count;
             a_count = 0;
         }
     }
@@ -252,7 +312,7 @@ public class LZWEncoder {
         return pix & 0xff;
     }
 
-    private void output(int code, OutputStream outs) throws IOException {
+    private void output(int code) {
         cur_accum &= masks[cur_bits];
 
         if (cur_bits > 0)
@@ -263,7 +323,7 @@ public class LZWEncoder {
         cur_bits += n_bits;
 
         while (cur_bits >= 8) {
-            char_out((byte) (cur_accum & 0xff), outs);
+            char_out((byte) (cur_accum & 0xff));
             cur_accum >>= 8;
             cur_bits -= 8;
         }
@@ -286,12 +346,12 @@ public class LZWEncoder {
         if (code == EOFCode) {
             // At EOF, write the rest of the buffer.
             while (cur_bits - 8 >= 0) {
-                char_out((byte) (cur_accum & 0xff), outs);
+                char_out((byte) (cur_accum & 0xff));
                 cur_accum >>= 8;
                 cur_bits -= 8;
             }
 
-            flush_char(outs);
+            flush_char();
         }
     }
 }
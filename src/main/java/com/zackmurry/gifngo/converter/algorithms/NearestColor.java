@@ -0,0 +1,84 @@
+package com.zackmurry.gifngo.converter.algorithms;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.stream.IntStream;
+
+/**
+ * finds the closest color in a color table, measured by squared distance. the colors are sorted by green, and the
+ * search works outwards from the green of the color being mapped, so most of the table doesn't have to be looked at.
+ * used by quantizers whose color tables don't come with a way to search them
+ */
+final class NearestColor {
+
+    // colors sorted by green: blue, green, red, and index in the color table
+    private final int[] sorted;
+
+    // for each green value, where to start searching in the sorted colors
+    private final int[] greenIndex = new int[256];
+
+    /**
+     * @param colorTable colors in BGR order
+     */
+    NearestColor(byte[] colorTable) {
+        final int colors = colorTable.length / 3;
+        final Integer[] order = IntStream.range(0, colors).boxed().toArray(Integer[]::new);
+        Arrays.sort(order, Comparator.comparingInt(i -> colorTable[i * 3 + 1] & 0xff));
+        sorted = new int[colors * 4];
+        for (int i = 0; i < colors; i++) {
+            sorted[i * 4] = colorTable[order[i] * 3] & 0xff;
+            sorted[i * 4 + 1] = colorTable[order[i] * 3 + 1] & 0xff;
+            sorted[i * 4 + 2] = colorTable[order[i] * 3 + 2] & 0xff;
+            sorted[i * 4 + 3] = order[i];
+        }
+        int position = 0;
+        for (int g = 0; g < 256; g++) {
+            while (position < colors - 1 && sorted[position * 4 + 1] < g) {
+                position++;
+            }
+            greenIndex[g] = position;
+        }
+    }
+
+    int map(int b, int g, int r) {
+        final int colors = sorted.length / 4;
+        int best = 0;
+        int bestDistance = Integer.MAX_VALUE;
+        int up = greenIndex[g];
+        int down = up - 1;
+        while (up < colors || down >= 0) {
+            if (up < colors) {
+                final int dg = sorted[up * 4 + 1] - g;
+                if (dg * dg >= bestDistance) {
+                    up = colors;
+                } else {
+                    final int db = sorted[up * 4] - b;
+                    final int dr = sorted[up * 4 + 2] - r;
+                    final int distance = dg * dg + db * db + dr * dr;
+                    if (distance < bestDistance) {
+                        bestDistance = distance;
+                        best = sorted[up * 4 + 3];
+                    }
+                    up++;
+                }
+            }
+            if (down >= 0) {
+                final int dg = g - sorted[down * 4 + 1];
+                if (dg * dg >= bestDistance) {
+                    down = -1;
+                } else {
+                    final int db = sorted[down * 4] - b;
+                    final int dr = sorted[down * 4 + 2] - r;
+                    final int distance = dg * dg + db * db + dr * dr;
+                    if (distance < bestDistance) {
+                        bestDistance = distance;
+                        best = sorted[down * 4 + 3];
+                    }
+                    down--;
+                }
+            }
+        }
+        return best;
+    }
+
+}
@@ -26,7 +26,7 @@ package com.zackmurry.gifngo.converter.algorithms;
 
 // Ported to Java 12/00 K Weiner
 
-public class NeuQuant {
+public class NeuQuant implements Quantizer {
 
     protected static final int netsize = 256; /* number of colours used */
 
@@ -275,6 +275,7 @@ public class NeuQuant {
 
     /* Search for BGR values 0..255 (after net is unbiased) and return colour index
        ---------------------------------------------------------------------------- */
+    @Override
     public int map(int b, int g, int r) {
 
         int i, j, dist, a, bestd;
@@ -340,6 +341,7 @@ public class NeuQuant {
         }
         return (best);
     }
+    @Override
     public byte[] process() {
         learn();
         unbiasnet();
@@ -0,0 +1,146 @@
+package com.zackmurry.gifngo.converter.algorithms;
+
+/**
+ * octree color quantizer (Gervautz and Purgathofer). every color is a path down a tree that branches on one bit of
+ * red, green, and blue per level, and whenever there are more than 256 leaves, the most recently added branch at the
+ * deepest level is merged into one leaf. the leaves that are left are the colors of the color table.
+ * the tree never has more than a few hundred leaves, so this is fast and uses little memory
+ */
+public class OctreeQuantizer implements Quantizer {
+
+    private static final int MAX_COLORS = 256;
+
+    // levels below the root. leaves at the bottom level are exact colors
+    private static final int DEPTH = 8;
+
+    private static final class Node {
+
+        private long blue;
+        private long green;
+        private long red;
+        private int pixels;
+
+        private boolean leaf;
+        private Node[] children;
+
+        // next node on the same level that can be merged
+        private Node nextReducible;
+
+    }
+
+    private final byte[] pixels;
+    private final int sample;
+
+    private final Node root = new Node();
+    private final Node[] reducible = new Node[DEPTH];
+    private int leafCount;
+
+    private NearestColor nearest;
+
+    /**
+     * @param pixels pixels in BGR order
+     * @param sample how many pixels to advance between the pixels that are added to the tree
+     */
+    public OctreeQuantizer(byte[] pixels, int sample) {
+        this.pixels = pixels;
+        this.sample = Math.max(1, sample);
+        reducible[0] = root;
+    }
+
+    @Override
+    public byte[] process() {
+        for (int i = 0; i + 2 < pixels.length; i += 3 * sample) {
+            add(pixels[i] & 0xff, pixels[i + 1] & 0xff, pixels[i + 2] & 0xff);
+        }
+        final byte[] colorTable = new byte[MAX_COLORS * 3];
+        collectColors(root, colorTable, 0);
+        nearest = new NearestColor(colorTable);
+        return colorTable;
+    }
+
+    @Override
+    public int map(int b, int g, int r) {
+        return nearest.map(b, g, r);
+    }
+
+    private void add(int b, int g, int r) {
+        Node node = root;
+        for (int level = 0; !node.leaf; level++) {
+            final int shift = 7 - level;
+            final int index = ((r >> shift) & 1) << 2 | ((g >> shift) & 1) << 1 | ((b >> shift) & 1);
+            if (node.children == null) {
+                node.children = new Node[8];
+            }
+            Node child = node.children[index];
+            if (child == null) {
+                child = new Node();
+                if (level + 1 == DEPTH) {
+                    child.leaf = true;
+                    leafCount++;
+                } else {
+                    child.nextReducible = reducible[level + 1];
+                    reducible[level + 1] = child;
+                }
+                node.children[index] = child;
+            }
+            node = child;
+        }
+        node.blue += b;
+        node.green += g;
+        node.red += r;
+        node.pixels++;
+        while (leafCount > MAX_COLORS) {
+            reduce();
+        }
+    }
+
+    /**
+     * merges the children of the most recently added branch on the deepest level that has branches into one leaf
+     */
+    private void reduce() {
+        int level = DEPTH - 1;
+        while (level > 0 && reducible[level] == null) {
+            level--;
+        }
+        final Node node = reducible[level];
+        reducible[level] = node.nextReducible;
+        int children = 0;
+        for (Node child : node.children) {
+            if (child != null) {
+                node.blue += child.blue;
+                node.green += child.green;
+                node.red += child.red;
+                node.pixels += child.pixels;
+                children++;
+            }
+        }
+        node.children = null;
+        node.leaf = true;
+        leafCount -= children - 1;
+    }
+
+    /**
+     * writes the average color of every leaf under the node into the color table
+     * @return the number of colors written so far
+     */
+    private int collectColors(Node node, byte[] colorTable, int count) {
+        if (node.leaf) {
+            if (node.pixels > 0) {
+                colorTable[count * 3] = (byte) (node.blue / node.pixels);
+                colorTable[count * 3 + 1] = (byte) (node.green / node.pixels);
+                colorTable[count * 3 + 2] = (byte) (node.red / node.pixels);
+                count++;
+            }
+            return count;
+        }
+        if (node.children != null) {
+            for (Node child : node.children) {
+                if (child != null) {
+                    count = collectColors(child, colorTable, count);
+                }
+            }
+        }
+        return count;
+    }
+
+}
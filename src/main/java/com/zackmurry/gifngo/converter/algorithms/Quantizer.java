@@ -0,0 +1,20 @@
+package com.zackmurry.gifngo.converter.algorithms;
+
+/**
+ * reduces the colors of an image to a 256-color table, and maps colors to their closest color in the table.
+ * a quantizer is made for one image's pixels, and can be used to map colors from any thread once process() has returned
+ */
+public interface Quantizer {
+
+    /**
+     * chooses the colors of the color table
+     * @return the color table: 256 colors in BGR order
+     */
+    byte[] process();
+
+    /**
+     * @return the index in the color table of the color closest to the given color. only valid after process()
+     */
+    int map(int b, int g, int r);
+
+}
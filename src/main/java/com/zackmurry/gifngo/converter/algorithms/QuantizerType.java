@@ -0,0 +1,46 @@
+package com.zackmurry.gifngo.converter.algorithms;
+
+/**
+ * algorithms that can choose the colors of a gif frame, from the best colors to the fastest
+ */
+public enum QuantizerType {
+
+    /**
+     * trains a neural network on the pixels. the best colors, but the slowest
+     */
+    NEUQUANT {
+        @Override
+        public Quantizer create(byte[] pixels, int sample) {
+            return new NeuQuant(pixels, pixels.length, sample);
+        }
+    },
+
+    /**
+     * splits color space into the boxes with the most color variance, using a histogram of the pixels.
+     * much faster than NEUQUANT, and close in quality
+     */
+    WU {
+        @Override
+        public Quantizer create(byte[] pixels, int sample) {
+            return new WuQuantizer(pixels, sample);
+        }
+    },
+
+    /**
+     * merges the least used branches of a color tree until 256 colors are left. the fastest, but can shift colors
+     * that only cover a few pixels
+     */
+    OCTREE {
+        @Override
+        public Quantizer create(byte[] pixels, int sample) {
+            return new OctreeQuantizer(pixels, sample);
+        }
+    };
+
+    /**
+     * @param pixels pixels in BGR order
+     * @param sample how many pixels to advance between the pixels that are looked at. 1 looks at every pixel
+     */
+    public abstract Quantizer create(byte[] pixels, int sample);
+
+}
@@ -0,0 +1,311 @@
+package com.zackmurry.gifngo.converter.algorithms;
+
+import java.util.Arrays;
+
+/**
+ * Xiaolin Wu's color quantizer (Graphics Gems II, "Efficient Statistical Computations for Optimal Color Quantization").
+ * the pixels are counted in a 32x32x32 histogram of color space, whose cumulative moments let the variance of any box
+ * of colors be computed in constant time. the box with the most variance is split where it lowers the variance the most,
+ * until there are 256 boxes, and the average color of each box goes in the color table
+ */
+public class WuQuantizer implements Quantizer {
+
+    private static final int MAX_COLORS = 256;
+
+    // 5 bits per channel, plus a row of zeros at index 0 so the moments don't need bounds checks
+    private static final int SIDE = 33;
+
+    private static final int RED = 0;
+    private static final int GREEN = 1;
+    private static final int BLUE = 2;
+
+    /**
+     * box of the histogram. the lower bounds are exclusive and the upper bounds are inclusive
+     */
+    private static final class Box {
+
+        private int r0;
+        private int r1;
+        private int g0;
+        private int g1;
+        private int b0;
+        private int b1;
+        private int volume;
+
+    }
+
+    private final byte[] pixels;
+    private final int sample;
+
+    // pixel count, color sums, and sum of squared colors in each cell, turned into cumulative moments
+    private final long[] weights = new long[SIDE * SIDE * SIDE];
+    private final long[] momentsRed = new long[SIDE * SIDE * SIDE];
+    private final long[] momentsGreen = new long[SIDE * SIDE * SIDE];
+    private final long[] momentsBlue = new long[SIDE * SIDE * SIDE];
+    private final double[] moments2 = new double[SIDE * SIDE * SIDE];
+
+    private NearestColor nearest;
+
+    /**
+     * @param pixels pixels in BGR order
+     * @param sample how many pixels to advance between the pixels that are counted
+     */
+    public WuQuantizer(byte[] pixels, int sample) {
+        this.pixels = pixels;
+        this.sample = Math.max(1, sample);
+    }
+
+    @Override
+    public byte[] process() {
+        buildHistogram();
+        computeMoments();
+
+        final Box[] boxes = new Box[MAX_COLORS];
+        final double[] variances = new double[MAX_COLORS];
+        boxes[0] = new Box();
+        boxes[0].r1 = boxes[0].g1 = boxes[0].b1 = SIDE - 1;
+        int boxCount = 1;
+        int next = 0;
+        while (boxCount < MAX_COLORS) {
+            final Box box = new Box();
+            if (cut(boxes[next], box)) {
+                boxes[boxCount] = box;
+                variances[next] = boxes[next].volume > 1 ? variance(boxes[next]) : 0;
+                variances[boxCount] = box.volume > 1 ? variance(box) : 0;
+                boxCount++;
+            } else {
+                variances[next] = 0;
+            }
+            next = 0;
+            double largest = variances[0];
+            for (int k = 1; k < boxCount; k++) {
+                if (variances[k] > largest) {
+                    largest = variances[k];
+                    next = k;
+                }
+            }
+            if (largest <= 0) {
+                break;
+            }
+        }
+
+        final byte[] colorTable = new byte[MAX_COLORS * 3];
+        for (int k = 0; k < boxCount; k++) {
+            final long weight = volume(boxes[k], weights);
+            if (weight > 0) {
+                colorTable[k * 3] = (byte) (volume(boxes[k], momentsBlue) / weight);
+                colorTable[k * 3 + 1] = (byte) (volume(boxes[k], momentsGreen) / weight);
+                colorTable[k * 3 + 2] = (byte) (volume(boxes[k], momentsRed) / weight);
+            }
+        }
+        nearest = new NearestColor(colorTable);
+        return colorTable;
+    }
+
+    @Override
+    public int map(int b, int g, int r) {
+        return nearest.map(b, g, r);
+    }
+
+    private static int index(int r, int g, int b) {
+        return (r * SIDE + g) * SIDE + b;
+    }
+
+    private void buildHistogram() {
+        for (int i = 0; i + 2 < pixels.length; i += 3 * sample) {
+            final int b = pixels[i] & 0xff;
+            final int g = pixels[i + 1] & 0xff;
+            final int r = pixels[i + 2] & 0xff;
+            final int cell = index((r >> 3) + 1, (g >> 3) + 1, (b >> 3) + 1);
+            weights[cell]++;
+            momentsRed[cell] += r;
+            momentsGreen[cell] += g;
+            momentsBlue[cell] += b;
+            moments2[cell] += r * r + g * g + b * b;
+        }
+    }
+
+    /**
+     * turns the histogram into cumulative moments, so each cell holds the sums of every cell at or below it on every axis
+     */
+    private void computeMoments() {
+        final long[] area = new long[SIDE];
+        final long[] areaRed = new long[SIDE];
+        final long[] areaGreen = new long[SIDE];
+        final long[] areaBlue = new long[SIDE];
+        final double[] area2 = new double[SIDE];
+        for (int r = 1; r < SIDE; r++) {
+            Arrays.fill(area, 0);
+            Arrays.fill(areaRed, 0);
+            Arrays.fill(areaGreen, 0);
+            Arrays.fill(areaBlue, 0);
+            Arrays.fill(area2, 0);
+            for (int g = 1; g < SIDE; g++) {
+                long line = 0;
+                long lineRed = 0;
+                long lineGreen = 0;
+                long lineBlue = 0;
+                double line2 = 0;
+                for (int b = 1; b < SIDE; b++) {
+                    final int cell = index(r, g, b);
+                    final int below = index(r - 1, g, b);
+                    line += weights[cell];
+                    lineRed += momentsRed[cell];
+                    lineGreen += momentsGreen[cell];
+                    lineBlue += momentsBlue[cell];
+                    line2 += moments2[cell];
+                    area[b] += line;
+                    areaRed[b] += lineRed;
+                    areaGreen[b] += lineGreen;
+                    areaBlue[b] += lineBlue;
+                    area2[b] += line2;
+                    weights[cell] = weights[below] + area[b];
+                    momentsRed[cell] = momentsRed[below] + areaRed[b];
+                    momentsGreen[cell] = momentsGreen[below] + areaGreen[b];
+                    momentsBlue[cell] = momentsBlue[below] + areaBlue[b];
+                    moments2[cell] = moments2[below] + area2[b];
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the sum of a moment over a box
+     */
+    private static long volume(Box box, long[] moment) {
+        return moment[index(box.r1, box.g1, box.b1)] - moment[index(box.r1, box.g1, box.b0)]
+                - moment[index(box.r1, box.g0, box.b1)] + moment[index(box.r1, box.g0, box.b0)]
+                - moment[index(box.r0, box.g1, box.b1)] + moment[index(box.r0, box.g1, box.b0)]
+                + moment[index(box.r0, box.g0, box.b1)] - moment[index(box.r0, box.g0, box.b0)];
+    }
+
+    private static double volume(Box box, double[] moment) {
+        return moment[index(box.r1, box.g1, box.b1)] - moment[index(box.r1, box.g1, box.b0)]
+                - moment[index(box.r1, box.g0, box.b1)] + moment[index(box.r1, box.g0, box.b0)]
+                - moment[index(box.r0, box.g1, box.b1)] + moment[index(box.r0, box.g1, box.b0)]
+                + moment[index(box.r0, box.g0, box.b1)] - moment[index(box.r0, box.g0, box.b0)];
+    }
+
+    /**
+     * @return the part of a box's moment sum that doesn't depend on where the box is cut along the direction
+     */
+    private static long bottom(Box box, int direction, long[] moment) {
+        switch (direction) {
+            case RED:
+                return -moment[index(box.r0, box.g1, box.b1)] + moment[index(box.r0, box.g1, box.b0)]
+                        + moment[index(box.r0, box.g0, box.b1)] - moment[index(box.r0, box.g0, box.b0)];
+            case GREEN:
+                return -moment[index(box.r1, box.g0, box.b1)] + moment[index(box.r1, box.g0, box.b0)]
+                        + moment[index(box.r0, box.g0, box.b1)] - moment[index(box.r0, box.g0, box.b0)];
+            default:
+                return -moment[index(box.r1, box.g1, box.b0)] + moment[index(box.r1, box.g0, box.b0)]
+                        + moment[index(box.r0, box.g1, box.b0)] - moment[index(box.r0, box.g0, box.b0)];
+        }
+    }
+
+    /**
+     * @return the rest of the moment sum of the part of a box below a cut at the position along the direction
+     */
+    private static long top(Box box, int direction, int position, long[] moment) {
+        switch (direction) {
+            case RED:
+                return moment[index(position, box.g1, box.b1)] - moment[index(position, box.g1, box.b0)]
+                        - moment[index(position, box.g0, box.b1)] + moment[index(position, box.g0, box.b0)];
+            case GREEN:
+                return moment[index(box.r1, position, box.b1)] - moment[index(box.r1, position, box.b0)]
+                        - moment[index(box.r0, position, box.b1)] + moment[index(box.r0, position, box.b0)];
+            default:
+                return moment[index(box.r1, box.g1, position)] - moment[index(box.r1, box.g0, position)]
+                        - moment[index(box.r0, box.g1, position)] + moment[index(box.r0, box.g0, position)];
+        }
+    }
+
+    /**
+     * @return the sum of squared distances of the box's pixels from their average color
+     */
+    private double variance(Box box) {
+        final double red = volume(box, momentsRed);
+        final double green = volume(box, momentsGreen);
+        final double blue = volume(box, momentsBlue);
+        return volume(box, moments2) - (red * red + green * green + blue * blue) / volume(box, weights);
+    }
+
+    /**
+     * finds the cut along a direction that leaves the two halves with the least variance between them
+     * @param cut where the best cut is stored, or -1 if the box can't be cut along the direction
+     * @return how much the cut lowers the variance, up to a constant. higher is better
+     */
+    private double maximize(Box box, int direction, int first, int last, int[] cut, long wholeRed, long wholeGreen, long wholeBlue, long wholeWeight) {
+        final long baseRed = bottom(box, direction, momentsRed);
+        final long baseGreen = bottom(box, direction, momentsGreen);
+        final long baseBlue = bottom(box, direction, momentsBlue);
+        final long baseWeight = bottom(box, direction, weights);
+        double max = 0;
+        cut[0] = -1;
+        for (int i = first; i < last; i++) {
+            double halfRed = baseRed + top(box, direction, i, momentsRed);
+            double halfGreen = baseGreen + top(box, direction, i, momentsGreen);
+            double halfBlue = baseBlue + top(box, direction, i, momentsBlue);
+            double halfWeight = baseWeight + top(box, direction, i, weights);
+            if (halfWeight == 0) {
+                continue;
+            }
+            double score = (halfRed * halfRed + halfGreen * halfGreen + halfBlue * halfBlue) / halfWeight;
+            halfRed = wholeRed - halfRed;
+            halfGreen = wholeGreen - halfGreen;
+            halfBlue = wholeBlue - halfBlue;
+            halfWeight = wholeWeight - halfWeight;
+            if (halfWeight == 0) {
+                continue;
+            }
+            score += (halfRed * halfRed + halfGreen * halfGreen + halfBlue * halfBlue) / halfWeight;
+            if (score > max) {
+                max = score;
+                cut[0] = i;
+            }
+        }
+        return max;
+    }
+
+    /**
+     * splits the first box in two, leaving the upper part in the second box
+     * @return whether the box could be split
+     */
+    private boolean cut(Box first, Box second) {
+        final long wholeRed = volume(first, momentsRed);
+        final long wholeGreen = volume(first, momentsGreen);
+        final long wholeBlue = volume(first, momentsBlue);
+        final long wholeWeight = volume(first, weights);
+
+        final int[] cutRed = new int[1];
+        final int[] cutGreen = new int[1];
+        final int[] cutBlue = new int[1];
+        final double maxRed = maximize(first, RED, first.r0 + 1, first.r1, cutRed, wholeRed, wholeGreen, wholeBlue, wholeWeight);
+        final double maxGreen = maximize(first, GREEN, first.g0 + 1, first.g1, cutGreen, wholeRed, wholeGreen, wholeBlue, wholeWeight);
+        final double maxBlue = maximize(first, BLUE, first.b0 + 1, first.b1, cutBlue, wholeRed, wholeGreen, wholeBlue, wholeWeight);
+
+        second.r1 = first.r1;
+        second.g1 = first.g1;
+        second.b1 = first.b1;
+        if (maxRed >= maxGreen && maxRed >= maxBlue) {
+            if (cutRed[0] < 0) {
+                return false;
+            }
+            second.r0 = first.r1 = cutRed[0];
+            second.g0 = first.g0;
+            second.b0 = first.b0;
+        } else if (maxGreen >= maxRed && maxGreen >= maxBlue) {
+            second.g0 = first.g1 = cutGreen[0];
+            second.r0 = first.r0;
+            second.b0 = first.b0;
+        } else {
+            second.b0 = first.b1 = cutBlue[0];
+            second.r0 = first.r0;
+            second.g0 = first.g0;
+        }
+        first.volume = (first.r1 - first.r0) * (first.g1 - first.g0) * (first.b1 - first.b0);
+        second.volume = (second.r1 - second.r0) * (second.g1 - second.g0) * (second.b1 - second.b0);
+        return true;
+    }
+
+}
@@ -0,0 +1,87 @@
+package com.zackmurry.gifngo.models;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.awt.*;
+
+/**
+ * rectangle of the screen to record, in screen coordinates
+ */
+@Getter
+@AllArgsConstructor
+public class CaptureRegion {
+
+    private final int x;
+    private final int y;
+    private final int width;
+    private final int height;
+
+    /**
+     * @param region a String in the format <code>X,Y,WIDTH,HEIGHT</code>
+     * @throws IllegalArgumentException if the region isn't four integers separated by commas, or if the width or height isn't positive
+     */
+    public static CaptureRegion fromString(String region) throws IllegalArgumentException {
+        final String[] parts = region.split(",");
+        if (parts.length != 4) {
+            throw new IllegalArgumentException("Capture region should be formatted like X,Y,WIDTH,HEIGHT");
+        }
+        final int[] values = new int[4];
+        try {
+            for (int i = 0; i < 4; i++) {
+                values[i] = Integer.parseInt(parts[i].trim());
+            }
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Capture region should contain four integers separated by commas");
+        }
+        if (values[2] <= 0 || values[3] <= 0) {
+            throw new IllegalArgumentException("Capture region should have a positive width and height");
+        }
+        return new CaptureRegion(values[0], values[1], values[2], values[3]);
+    }
+
+    /**
+     * @param index index of the monitor, starting at 0, in the order that the graphics environment lists them
+     * @throws IllegalArgumentException if there's no monitor with that index
+     */
+    public static CaptureRegion ofMonitor(int index) throws IllegalArgumentException {
+        final GraphicsDevice[] screens = GraphicsEnvironment.getLocalGraphicsEnvironment().getScreenDevices();
+        if (index < 0 || index >= screens.length) {
+            throw new IllegalArgumentException("There is no monitor " + index + ". Monitors are numbered from 0 to " + (screens.length - 1) + ".");
+        }
+        return fromRectangle(screens[index].getDefaultConfiguration().getBounds());
+    }
+
+    /**
+     * @return the size of the primary screen
+     */
+    public static CaptureRegion fullScreen() {
+        final Dimension screenSize = Toolkit.getDefaultToolkit().getScreenSize();
+        return new CaptureRegion(0, 0, screenSize.width, screenSize.height);
+    }
+
+    public static CaptureRegion fromRectangle(Rectangle rectangle) {
+        return new CaptureRegion(rectangle.x, rectangle.y, rectangle.width, rectangle.height);
+    }
+
+    /**
+     * @param parent region that this region's coordinates are relative to, or null if they're screen coordinates
+     * @return this region in screen coordinates
+     */
+    public CaptureRegion relativeTo(CaptureRegion parent) {
+        if (parent == null) {
+            return this;
+        }
+        return new CaptureRegion(parent.x + x, parent.y + y, width, height);
+    }
+
+    public Rectangle toRectangle() {
+        return new Rectangle(x, y, width, height);
+    }
+
+    @Override
+    public String toString() {
+        return x + "," + y + "," + width + "," + height;
+    }
+
+}
@@ -12,9 +12,18 @@ public class Frame {
     private BufferedImage image;
     private int timeSinceStart;
 
+    // number of the capture tick the frame was taken on, or -1 if it wasn't captured on a tick
+    private long sequence = -1;
+
     public Frame(BufferedImage image, int timeSinceStart) {
         this.image = image;
         this.timeSinceStart = timeSinceStart;
     }
 
+    public Frame(BufferedImage image, int timeSinceStart, long sequence) {
+        this.image = image;
+        this.timeSinceStart = timeSinceStart;
+        this.sequence = sequence;
+    }
+
 }
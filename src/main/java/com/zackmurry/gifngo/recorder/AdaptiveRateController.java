@@ -0,0 +1,83 @@
+package com.zackmurry.gifngo.recorder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * lowers the frame rate while recording when the computer can't keep up, and raises it back once it can.
+ * the recording is falling behind when frames are piling up in the queue (encoding is too slow) or the scheduler is
+ * skipping late ticks (capturing is too slow). the rate is lowered by only capturing every few ticks,
+ * so frames keep their real timestamps and the GIF's delays stay correct
+ */
+public class AdaptiveRateController extends PeriodicController {
+
+    private static final Logger logger = LoggerFactory.getLogger(AdaptiveRateController.class);
+
+    // number of checks in a row that the recording has to be keeping up for before the frame rate is raised again
+    private static final int CHECKS_BEFORE_RAISING = 3;
+
+    private final FrameScheduler scheduler;
+    private final FrameRingBuffer buffer;
+    private final int maxStride;
+
+    private long lastSkippedTicks;
+    private int checksKeepingUp;
+
+    /**
+     * @param maxStride the most ticks to advance between captures. the frame rate won't go lower than the original frame rate divided by this
+     */
+    public AdaptiveRateController(FrameScheduler scheduler, FrameRingBuffer buffer, int maxStride) {
+        super("frame-rate-controller");
+        this.scheduler = scheduler;
+        this.buffer = buffer;
+        this.maxStride = Math.max(1, maxStride);
+    }
+
+    @Override
+    protected void check() {
+        final long skippedTicks = scheduler.getSkippedTicks();
+        final long windowSkipped = skippedTicks - lastSkippedTicks;
+        lastSkippedTicks = skippedTicks;
+        final int stride = scheduler.getStride();
+        final int newStride = nextStride(stride, buffer.getDepth(), buffer.getCapacity(), windowSkipped > 0);
+        if (newStride > stride) {
+            checksKeepingUp = 0;
+            scheduler.setStride(newStride);
+            logger.debug("Falling behind ({} frames queued, {} ticks skipped). Capturing every {} ticks.", buffer.getDepth(), windowSkipped, newStride);
+        } else if (newStride < stride) {
+            if (++checksKeepingUp >= CHECKS_BEFORE_RAISING) {
+                checksKeepingUp = 0;
+                scheduler.setStride(newStride);
+                logger.debug("Keeping up again. Capturing every {} ticks.", newStride);
+            }
+        } else {
+            checksKeepingUp = 0;
+        }
+    }
+
+    /**
+     * @param depth number of frames waiting in the queue
+     * @param skipping whether the scheduler skipped late ticks since the last check
+     * @return the stride the scheduler should use, one step away from the current stride at most
+     */
+    int nextStride(int stride, int depth, int capacity, boolean skipping) {
+        if ((skipping || depth * 2 >= capacity) && stride < maxStride) {
+            return stride + 1;
+        }
+        if (!skipping && depth * 4 <= capacity && stride > 1) {
+            return stride - 1;
+        }
+        return stride;
+    }
+
+    /**
+     * @return the largest stride that keeps the frame rate at or above the minimum frame rate
+     */
+    static int maxStrideFor(double framesPerSecond, double minFramesPerSecond) {
+        if (minFramesPerSecond <= 0 || minFramesPerSecond >= framesPerSecond) {
+            return 1;
+        }
+        return (int) Math.floor(framesPerSecond / minFramesPerSecond);
+    }
+
+}
@@ -0,0 +1,99 @@
+package com.zackmurry.gifngo.recorder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * adds and retires recording threads while recording, so that the frame rate is kept with as few threads as possible.
+ * recording threads report how long each frame keeps them busy (the capture, plus the resize when captures are resized
+ * on the recording threads), and every so often the controller works out how many threads
+ * it would take to capture a frame every frame interval. it adds a thread at a time if there aren't enough (or if ticks
+ * are being skipped), and retires a thread at a time once there have been more than enough for a while
+ */
+public class AdaptiveThreadController extends PeriodicController {
+
+    private static final Logger logger = LoggerFactory.getLogger(AdaptiveThreadController.class);
+
+    // captures take longer at some times than others, so threads are added before they're strictly needed
+    private static final double HEADROOM = 1.25;
+
+    // number of checks in a row that a thread has to be unneeded for before it's retired, so the count doesn't flap
+    private static final int CHECKS_BEFORE_RETIRING = 3;
+
+    /**
+     * starts and stops recording threads for the controller
+     */
+    public interface Workers {
+
+        int getActiveCount();
+
+        void add();
+
+        void retire();
+
+    }
+
+    private final FrameScheduler scheduler;
+    private final Workers workers;
+    private final int maxThreads;
+
+    private final LongAdder captures = new LongAdder();
+    private final LongAdder captureNanos = new LongAdder();
+    private long lastSkippedTicks;
+    private int checksWithExtraThreads;
+
+    public AdaptiveThreadController(FrameScheduler scheduler, Workers workers, int maxThreads) {
+        super("capture-thread-controller");
+        this.scheduler = scheduler;
+        this.workers = workers;
+        this.maxThreads = Math.max(1, maxThreads);
+    }
+
+    /**
+     * called by recording threads after every frame with how long they were busy with it, including resizing it
+     */
+    public void recordFrameTime(long nanos) {
+        captures.increment();
+        captureNanos.add(nanos);
+    }
+
+    @Override
+    protected void check() {
+        final long windowCaptures = captures.sumThenReset();
+        final long windowNanos = captureNanos.sumThenReset();
+        final long skippedTicks = scheduler.getSkippedTicks();
+        final long windowSkipped = skippedTicks - lastSkippedTicks;
+        lastSkippedTicks = skippedTicks;
+        if (windowCaptures == 0) {
+            return;
+        }
+
+        final int active = workers.getActiveCount();
+        final long averageNanos = windowNanos / windowCaptures;
+        final int needed = neededThreads(averageNanos, scheduler.getIntervalNanos());
+        if ((windowSkipped > 0 || needed > active) && active < maxThreads) {
+            checksWithExtraThreads = 0;
+            workers.add();
+            logger.debug("Captures take {} ms on average and {} ticks were skipped. Added a recording thread ({} now).",
+                    averageNanos / 1_000_000d, windowSkipped, active + 1);
+        } else if (windowSkipped == 0 && needed < active) {
+            if (++checksWithExtraThreads >= CHECKS_BEFORE_RETIRING) {
+                checksWithExtraThreads = 0;
+                workers.retire();
+                logger.debug("Captures take {} ms on average. Retired a recording thread ({} now).", averageNanos / 1_000_000d, active - 1);
+            }
+        } else {
+            checksWithExtraThreads = 0;
+        }
+    }
+
+    /**
+     * @return how many threads it takes to start a capture every interval when each capture takes this long
+     */
+    static int neededThreads(long averageCaptureNanos, long intervalNanos) {
+        return Math.max(1, (int) Math.ceil(averageCaptureNanos * HEADROOM / intervalNanos));
+    }
+
+}
@@ -0,0 +1,134 @@
+package com.zackmurry.gifngo.recorder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * builds several saved recordings at once. the number of builds running at once is limited by the number of jobs,
+ * and the memory the running builds are expected to use is limited by a budget shared between them, so a few large
+ * recordings wait for each other instead of running out of memory. a build that fails doesn't stop the others
+ */
+class BuildScheduler {
+
+    private static final Logger logger = LoggerFactory.getLogger(BuildScheduler.class);
+
+    // memory is reserved in megabytes so that it fits in a semaphore's permits
+    private static final long BYTES_PER_PERMIT = 1024 * 1024;
+
+    /**
+     * builds one gif
+     */
+    interface Job {
+
+        /**
+         * @return whether the gif was built successfully
+         */
+        boolean run(Progress progress) throws Exception;
+
+    }
+
+    /**
+     * logs how far along a build is, every quarter of the way
+     */
+    static class Progress {
+
+        private final String name;
+        private volatile int totalFrames;
+        private final AtomicInteger builtFrames = new AtomicInteger();
+
+        private Progress(String name) {
+            this.name = name;
+        }
+
+        void setTotalFrames(int totalFrames) {
+            this.totalFrames = totalFrames;
+        }
+
+        void frameBuilt() {
+            final int built = builtFrames.incrementAndGet();
+            final int total = totalFrames;
+            if (total >= 4 && built < total && built % (total / 4) == 0) {
+                logger.info("Building {}: {}% ({} of {} frames).", name, built * 100 / total, built, total);
+            }
+        }
+
+        int getBuiltFrames() {
+            return builtFrames.get();
+        }
+
+    }
+
+    private final ExecutorService pool;
+    private final Semaphore memory;
+    private final int memoryPermits;
+    private final List<Future<Boolean>> builds = new ArrayList<>();
+
+    /**
+     * @param jobs number of gifs to build at once
+     * @param memoryBudget bytes of memory that the builds running at once can use between them
+     */
+    BuildScheduler(int jobs, long memoryBudget) {
+        final AtomicInteger threadCount = new AtomicInteger();
+        pool = Executors.newFixedThreadPool(Math.max(1, jobs), runnable -> new Thread(runnable, "gif-build-" + threadCount.incrementAndGet()));
+        memoryPermits = (int) Math.max(1, Math.min(Integer.MAX_VALUE, memoryBudget / BYTES_PER_PERMIT));
+        memory = new Semaphore(memoryPermits, true);
+    }
+
+    /**
+     * queues a gif to be built
+     * @param name name of the build for logs
+     * @param memoryEstimate bytes of memory the build is expected to use. builds that need more than the whole budget run by themselves
+     */
+    void submit(String name, long memoryEstimate, Job job) {
+        final int permits = (int) Math.max(1, Math.min(memoryPermits, (memoryEstimate + BYTES_PER_PERMIT - 1) / BYTES_PER_PERMIT));
+        builds.add(pool.submit(() -> {
+            memory.acquireUninterruptibly(permits);
+            final Progress progress = new Progress(name);
+            final long startTime = System.currentTimeMillis();
+            try {
+                logger.info("Building {}...", name);
+                final boolean built = job.run(progress);
+                logger.debug("Finished building {} ({} frames) in {} seconds.", name, progress.getBuiltFrames(), (System.currentTimeMillis() - startTime) / 1000d);
+                return built;
+            } catch (Exception e) {
+                logger.error("Error building {}. Continuing with the other gifs...", name, e);
+                return false;
+            } finally {
+                memory.release(permits);
+            }
+        }));
+    }
+
+    /**
+     * waits for every queued build to finish and stops the build threads
+     * @return the number of builds that failed
+     */
+    int finish() {
+        int failures = 0;
+        for (Future<Boolean> build : builds) {
+            try {
+                if (!build.get()) {
+                    failures++;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failures++;
+            } catch (ExecutionException e) {
+                failures++;
+            }
+        }
+        builds.clear();
+        pool.shutdown();
+        return failures;
+    }
+
+}
@@ -0,0 +1,276 @@
+package com.zackmurry.gifngo.recorder;
+
+import com.zackmurry.gifngo.models.Frame;
+import com.zackmurry.gifngo.models.ImageDimension;
+import lombok.Getter;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * append-only file of captured frames, used to save recordings for --wait-for-build.
+ * the file starts with a magic number and a version, followed by frames back to back. each frame is the length of the
+ * rest of the frame, the time since the start of the recording, the width, the height, and whether the pixels are
+ * compressed (as ints, except for the last, which is a byte), followed by the pixels in BGR order, compressed with
+ * Deflater at its fastest level unless that doesn't make them smaller.
+ * unlike saving images, this is lossless, and the pixels are already in the order GifConverter reads them in
+ */
+final class CaptureFile {
+
+    static final String EXTENSION = ".capture";
+
+    private static final int MAGIC = 0x474e474f; // "GNGO"
+    private static final int VERSION = 1;
+    private static final int FILE_HEADER_BYTES = 2 * Integer.BYTES;
+
+    // time since start, width, height, and compression, after the length of the frame
+    private static final int FRAME_HEADER_BYTES = 3 * Integer.BYTES + 1;
+
+    private static final byte RAW = 0;
+    private static final byte DEFLATED = 1;
+
+    private CaptureFile() {
+
+    }
+
+    /**
+     * @return whether the file starts with the capture file magic number
+     */
+    static boolean isCaptureFile(File file) {
+        if (!file.isFile() || file.length() < FILE_HEADER_BYTES) {
+            return false;
+        }
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            final ByteBuffer header = ByteBuffer.allocate(Integer.BYTES);
+            while (header.hasRemaining() && channel.read(header) >= 0) {
+                // reading the magic number
+            }
+            return header.flip().remaining() == Integer.BYTES && header.getInt() == MAGIC;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * @return the size of the first frame in a capture file, or null if it doesn't have one
+     */
+    static ImageDimension readFrameDimensions(File file) {
+        try (Reader reader = new Reader(file)) {
+            if (reader.getFrameCount() == 0) {
+                return null;
+            }
+            final ByteBuffer header = ByteBuffer.allocate(FRAME_HEADER_BYTES);
+            reader.readFully(header, reader.frameOffsets[0]);
+            header.getInt();
+            return new ImageDimension(header.getInt(), header.getInt());
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * appends frames to a capture file. only one thread should write to it at a time
+     */
+    static class Writer implements AutoCloseable {
+
+        private final FileChannel channel;
+        private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        private final ByteBuffer header = ByteBuffer.allocate(Integer.BYTES + FRAME_HEADER_BYTES);
+        private byte[] compressed = new byte[0];
+
+        @Getter
+        private int frameCount;
+
+        Writer(File file) throws IOException {
+            channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+            final ByteBuffer fileHeader = ByteBuffer.allocate(FILE_HEADER_BYTES).putInt(MAGIC).putInt(VERSION);
+            fileHeader.flip();
+            writeFully(fileHeader);
+        }
+
+        void write(Frame frame) throws IOException {
+            final BufferedImage image = frame.getImage();
+            final byte[] pixels = bgrPixels(image);
+
+            deflater.reset();
+            deflater.setInput(pixels);
+            deflater.finish();
+            if (compressed.length < pixels.length) {
+                compressed = new byte[pixels.length];
+            }
+            int compressedLength = 0;
+            // stops once the compressed pixels would be as big as the raw ones, since they'd be stored raw anyway
+            while (!deflater.finished() && compressedLength < pixels.length) {
+                compressedLength += deflater.deflate(compressed, compressedLength, pixels.length - compressedLength);
+            }
+            final boolean deflated = deflater.finished() && compressedLength < pixels.length;
+            final int payloadLength = deflated ? compressedLength : pixels.length;
+
+            header.clear();
+            header.putInt(FRAME_HEADER_BYTES + payloadLength)
+                    .putInt(frame.getTimeSinceStart())
+                    .putInt(image.getWidth())
+                    .putInt(image.getHeight())
+                    .put(deflated ? DEFLATED : RAW);
+            header.flip();
+            writeFully(header);
+            writeFully(ByteBuffer.wrap(deflated ? compressed : pixels, 0, payloadLength));
+            frameCount++;
+        }
+
+        private void writeFully(ByteBuffer buffer) throws IOException {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            deflater.end();
+            channel.close();
+        }
+
+    }
+
+    /**
+     * reads frames out of a capture file. safe to use from multiple threads
+     */
+    static class Reader implements AutoCloseable {
+
+        private final FileChannel channel;
+
+        // each thread reads frames into its own buffer, which grows to the size of the biggest frame it has read.
+        // frames aren't mapped into memory, since a mapping holds on to the file until it's garbage collected,
+        // which would stop the file from being deleted on Windows after it's built
+        private final ThreadLocal<ByteBuffer> readBuffer = ThreadLocal.withInitial(() -> ByteBuffer.allocate(0));
+
+        // where each frame starts, after its length
+        private final long[] frameOffsets;
+        private final int[] frameLengths;
+
+        Reader(File file) throws IOException {
+            channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+            final ByteBuffer fileHeader = ByteBuffer.allocate(FILE_HEADER_BYTES);
+            readFully(fileHeader, 0);
+            if (fileHeader.getInt() != MAGIC) {
+                channel.close();
+                throw new IOException(file.getAbsolutePath() + " isn't a capture file.");
+            }
+            final int version = fileHeader.getInt();
+            if (version != VERSION) {
+                channel.close();
+                throw new IOException("Unsupported capture file version " + version + " in " + file.getAbsolutePath());
+            }
+
+            // skips from length to length. a frame that was cut off (like when the program was closed while saving it) is left out
+            final List<long[]> frames = new ArrayList<>();
+            final ByteBuffer length = ByteBuffer.allocate(Integer.BYTES);
+            final long size = channel.size();
+            long position = FILE_HEADER_BYTES;
+            while (position + Integer.BYTES <= size) {
+                length.clear();
+                readFully(length, position);
+                final int frameLength = length.getInt();
+                if (frameLength < FRAME_HEADER_BYTES || position + Integer.BYTES + frameLength > size) {
+                    break;
+                }
+                frames.add(new long[] { position + Integer.BYTES, frameLength });
+                position += Integer.BYTES + frameLength;
+            }
+            frameOffsets = frames.stream().mapToLong(frame -> frame[0]).toArray();
+            frameLengths = frames.stream().mapToInt(frame -> (int) frame[1]).toArray();
+        }
+
+        int getFrameCount() {
+            return frameOffsets.length;
+        }
+
+        /**
+         * @return the frame at the index. its image is TYPE_3BYTE_BGR
+         */
+        Frame read(int index) throws IOException {
+            ByteBuffer record = readBuffer.get();
+            if (record.capacity() < frameLengths[index]) {
+                record = ByteBuffer.allocate(frameLengths[index]);
+                readBuffer.set(record);
+            }
+            record.clear().limit(frameLengths[index]);
+            readFully(record, frameOffsets[index]);
+            final int timeSinceStart = record.getInt();
+            final int width = record.getInt();
+            final int height = record.getInt();
+            final byte compression = record.get();
+
+            final BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_3BYTE_BGR);
+            final byte[] pixels = ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+            if (compression == DEFLATED) {
+                final Inflater inflater = new Inflater();
+                try {
+                    inflater.setInput(record);
+                    int inflated = 0;
+                    while (inflated < pixels.length && !inflater.finished()) {
+                        final int read = inflater.inflate(pixels, inflated, pixels.length - inflated);
+                        if (read == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                            break;
+                        }
+                        inflated += read;
+                    }
+                    if (inflated != pixels.length) {
+                        throw new IOException("Frame " + index + " of the capture file is corrupted.");
+                    }
+                } catch (DataFormatException e) {
+                    throw new IOException("Frame " + index + " of the capture file is corrupted.", e);
+                } finally {
+                    inflater.end();
+                }
+            } else {
+                if (record.remaining() != pixels.length) {
+                    throw new IOException("Frame " + index + " of the capture file is corrupted.");
+                }
+                record.get(pixels);
+            }
+            return new Frame(image, timeSinceStart);
+        }
+
+        private void readFully(ByteBuffer buffer, long position) throws IOException {
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, position + buffer.position()) < 0) {
+                    throw new IOException("Unexpected end of capture file.");
+                }
+            }
+            buffer.flip();
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+
+    }
+
+    /**
+     * @return the pixels of the image in BGR order, converting it first if it isn't TYPE_3BYTE_BGR
+     */
+    private static byte[] bgrPixels(BufferedImage image) {
+        if (image.getType() != BufferedImage.TYPE_3BYTE_BGR) {
+            final BufferedImage converted = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_3BYTE_BGR);
+            final Graphics2D g = converted.createGraphics();
+            g.drawImage(image, 0, 0, null);
+            g.dispose();
+            image = converted;
+        }
+        return ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+    }
+
+}
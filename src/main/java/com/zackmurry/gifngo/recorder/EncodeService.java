@@ -0,0 +1,102 @@
+package com.zackmurry.gifngo.recorder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * runs the end of stopped recordings on a background thread, so that stopping a recording doesn't wait for its gif to be
+ * built and a new recording can start right away. only the last part of a recording is run here, one recording at a time
+ * in the order they were stopped: finishing its FrameConsumer, checking the frame rate for strictFps, and finishing the gif
+ * or capture file. frames are still encoded on the FrameConsumer threads of every recording that hasn't finished yet.
+ * submitting never blocks, since it's called from the thread that handles the hotkey. each waiting recording holds its
+ * frames and encoder, so only a few of them can wait, and new recordings shouldn't start while isFull().
+ * the encoding thread is a daemon, so whatever ends the program has to call shutdown() first to finish pending recordings
+ */
+public class EncodeService {
+
+    private static final Logger logger = LoggerFactory.getLogger(EncodeService.class);
+
+    private final ThreadPoolExecutor executor;
+
+    // jobs run in order, so once this is done, every job before it is too
+    private volatile Future<?> lastJob = CompletableFuture.completedFuture(null);
+
+    /**
+     * @param queueSize number of stopped recordings that can wait while another one is being finished
+     */
+    public EncodeService(int queueSize) {
+        executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(Math.max(1, queueSize)), runnable -> {
+            final Thread thread = new Thread(runnable, "gif-encoder");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * queues a recording to be finished. returns right away
+     * @param name name of the recording for logs
+     */
+    public void submit(String name, Runnable job) {
+        try {
+            lastJob = executor.submit(() -> {
+                try {
+                    job.run();
+                } catch (RuntimeException e) {
+                    logger.error("Error building {}.", name, e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            logger.error("Couldn't queue {} to be built: {} recordings are already waiting to be built.", name, getQueuedJobs(), e);
+        }
+    }
+
+    /**
+     * waits for every recording that has been queued so far to be finished
+     */
+    public void awaitIdle() {
+        try {
+            lastJob.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            logger.error("Error waiting for recordings to finish building.", e);
+        }
+    }
+
+    /**
+     * stops accepting recordings and waits for the ones that have been queued to be finished
+     */
+    public void shutdown() {
+        executor.shutdown();
+        try {
+            while (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+                logger.info("Waiting for {} recordings to finish building...", getQueuedJobs() + 1);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return the number of stopped recordings waiting to be finished, not counting the one being finished
+     */
+    public int getQueuedJobs() {
+        return executor.getQueue().size();
+    }
+
+    /**
+     * @return whether another recording can't be queued until one of the waiting recordings has been finished
+     */
+    public boolean isFull() {
+        return executor.getQueue().remainingCapacity() == 0;
+    }
+
+}
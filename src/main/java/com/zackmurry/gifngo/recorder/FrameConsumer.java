@@ -0,0 +1,64 @@
+package com.zackmurry.gifngo.recorder;
+
+import com.zackmurry.gifngo.models.Frame;
+import lombok.Getter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.function.Consumer;
+
+/**
+ * takes frames out of a FrameRingBuffer while the ScreenRecorders are still filling it and hands them to a sink,
+ * so that frames are resized and encoded during the recording instead of piling up until it stops
+ */
+public class FrameConsumer extends Thread {
+
+    private static final Logger logger = LoggerFactory.getLogger(FrameConsumer.class);
+
+    private final FrameRingBuffer buffer;
+    private final Consumer<Frame> sink;
+
+    @Getter
+    private volatile int consumedFrames;
+
+    // the first exception thrown by the sink, after which no more frames are handed to it
+    @Getter
+    private volatile RuntimeException failure;
+
+    public FrameConsumer(FrameRingBuffer buffer, Consumer<Frame> sink) {
+        super("frame-consumer");
+        this.buffer = buffer;
+        this.sink = sink;
+    }
+
+    public void run() {
+        Frame frame;
+        while ((frame = buffer.take()) != null) {
+            if (failure != null) {
+                // the output is already broken, but frames are still taken out so the recording threads don't block
+                continue;
+            }
+            try {
+                sink.accept(frame);
+                consumedFrames++;
+            } catch (RuntimeException e) {
+                failure = e;
+                logger.error("Error processing a frame. The rest of the recording won't be saved.", e);
+            }
+        }
+        buffer.release();
+        logger.debug("Consumer finished after {} frames.", consumedFrames);
+    }
+
+    /**
+     * waits for every frame in the buffer to be consumed. the buffer should be closed first
+     */
+    public void finish() {
+        try {
+            this.join();
+        } catch (InterruptedException e) {
+            e.printStackTrace();
+        }
+    }
+
+}
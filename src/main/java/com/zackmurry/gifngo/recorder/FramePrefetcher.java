@@ -0,0 +1,85 @@
+package com.zackmurry.gifngo.recorder;
+
+import com.zackmurry.gifngo.models.Frame;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+/**
+ * reads and decodes the saved frames of a gif on a small pool of threads, a few frames ahead of the frame being
+ * resized and encoded, and hands them to a consumer in order. only a fixed number of frames are loaded ahead,
+ * so memory use doesn't depend on how long the recording is
+ */
+class FramePrefetcher implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(FramePrefetcher.class);
+
+    /**
+     * loads one saved frame. called from the prefetching threads, so it has to be safe to call from multiple threads
+     */
+    interface FrameLoader {
+
+        Frame load(int index) throws IOException;
+
+    }
+
+    private final ExecutorService pool;
+    private final int framesAhead;
+
+    /**
+     * @param threads number of threads to load frames on
+     */
+    FramePrefetcher(int threads) {
+        pool = Executors.newFixedThreadPool(threads, runnable -> {
+            final Thread thread = new Thread(runnable, "frame-prefetcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // enough frames to keep every thread busy while the consumer works on the oldest one
+        framesAhead = threads * 2;
+    }
+
+    /**
+     * loads frames 0 to frameCount - 1 and hands them to the sink in order, on the calling thread.
+     * frames that can't be loaded are logged and skipped
+     */
+    void load(int frameCount, FrameLoader loader, Consumer<Frame> sink) {
+        final Deque<CompletableFuture<Frame>> pendingFrames = new ArrayDeque<>();
+        int nextIndex = 0;
+        while (nextIndex < frameCount || !pendingFrames.isEmpty()) {
+            while (nextIndex < frameCount && pendingFrames.size() < framesAhead) {
+                final int index = nextIndex++;
+                pendingFrames.add(CompletableFuture.supplyAsync(() -> {
+                    try {
+                        return loader.load(index);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }, pool));
+            }
+            final Frame frame;
+            try {
+                frame = pendingFrames.poll().join();
+            } catch (CompletionException e) {
+                logger.error("Exception occurred when reading a frame of a gif. Skipping frame...", e.getCause());
+                continue;
+            }
+            sink.accept(frame);
+        }
+    }
+
+    @Override
+    public void close() {
+        pool.shutdown();
+    }
+
+}
@@ -0,0 +1,379 @@
+package com.zackmurry.gifngo.recorder;
+
+import com.zackmurry.gifngo.models.Frame;
+import lombok.Getter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * bounded, lock-free queue that ScreenRecorders put frames into and a FrameConsumer takes them out of.
+ * this keeps the number of frames in memory fixed no matter how long a recording is.
+ * when the queue is full, the OverflowPolicy decides what happens to new frames.
+ *
+ * the queue itself is Dmitry Vyukov's bounded MPMC queue: every slot has a sequence number which tells
+ * producers and consumers whether it's their turn to use the slot, so claiming a slot is a single compare-and-set
+ * see https://www.1024cores.net/home/lock-free-algorithms/queues/bounded-mpmc-queue
+ *
+ * recording threads finish captures in whatever order they finish them, so frames are taken out in order of their
+ * sequence rather than the order they were put in. a frame is held back until every frame before it has been taken or
+ * is known to be missing, which producers and the FrameScheduler report with skip(). frames that are waiting count
+ * toward the capacity, so the queue is full when the frames in it and the frames waiting add up to the capacity.
+ * if a frame goes missing without being reported, the consumer gives up on it once a queue's worth of frames are
+ * waiting for it. frames without a sequence are taken in the order they were put in
+ */
+public class FrameRingBuffer {
+
+    private static final Logger logger = LoggerFactory.getLogger(FrameRingBuffer.class);
+
+    // how long to wait before checking the queue again when it's full (for producers) or empty (for the consumer)
+    private static final long BACKOFF_NANOS = TimeUnit.MICROSECONDS.toNanos(200);
+
+    private final AtomicReferenceArray<Frame> slots;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong enqueuePosition = new AtomicLong();
+    private final AtomicLong dequeuePosition = new AtomicLong();
+
+    @Getter
+    private final OverflowPolicy overflowPolicy;
+
+    private final AtomicLong highWaterMark = new AtomicLong();
+    private final AtomicLong droppedFrames = new AtomicLong();
+    private final AtomicLong spilledFrames = new AtomicLong();
+
+    private FrameSpill spill;
+    private volatile boolean closed;
+
+    // ranges of sequences that won't get a frame, as {from, to} pairs. drained by the consumer
+    private final ConcurrentLinkedQueue<long[]> skippedRanges = new ConcurrentLinkedQueue<>();
+
+    // only used by the consumer
+    private long nextSequence;
+    // frames before this were counted as dropped when the consumer stopped waiting for them
+    private long abandonedBefore;
+    private final TreeMap<Long, Frame> earlyFrames = new TreeMap<>();
+    private final TreeMap<Long, Long> missingSequences = new TreeMap<>();
+    private volatile int earlyFrameCount;
+
+    /**
+     * @param capacity maximum number of frames held in memory. rounded up to a power of two
+     * @param overflowPolicy what to do with frames when the queue is full
+     */
+    public FrameRingBuffer(int capacity, OverflowPolicy overflowPolicy) {
+        this(capacity, overflowPolicy, null);
+    }
+
+    /**
+     * @param spill where to spill frames with SPILL_TO_DISK, or null to create a temporary file
+     */
+    FrameRingBuffer(int capacity, OverflowPolicy overflowPolicy, FrameSpill spill) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Queue capacity must be greater than 0.");
+        }
+        final int size = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        this.slots = new AtomicReferenceArray<>(size);
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+        this.mask = size - 1;
+        this.overflowPolicy = overflowPolicy;
+        if (overflowPolicy == OverflowPolicy.SPILL_TO_DISK && spill != null) {
+            this.spill = spill;
+        } else if (overflowPolicy == OverflowPolicy.SPILL_TO_DISK) {
+            try {
+                this.spill = new FrameSpill();
+            } catch (IOException e) {
+                logger.error("Couldn't create a file to spill frames to. Frames will be dropped instead when the queue is full.", e);
+            }
+        }
+    }
+
+    /**
+     * adds a frame to the queue, following the overflow policy if the queue is full. safe to call from multiple threads
+     */
+    public void offer(Frame frame) {
+        if (closed) {
+            logger.warn("Frame offered to a closed queue. Dropping it...");
+            dropFrame(frame);
+            return;
+        }
+        // once frames have been spilled, new frames go after them so that the frames stay in order
+        if (spill != null && !spill.isEmpty()) {
+            spillFrame(frame);
+            return;
+        }
+        while (!tryOffer(frame)) {
+            if (overflowPolicy == OverflowPolicy.BLOCK) {
+                if (closed) {
+                    dropFrame(frame);
+                    return;
+                }
+                LockSupport.parkNanos(BACKOFF_NANOS);
+            } else if (spill != null) {
+                spillFrame(frame);
+                return;
+            } else {
+                final Frame oldest = poll();
+                if (oldest != null) {
+                    dropFrame(oldest);
+                } else {
+                    // every frame is waiting on earlier frames, which the consumer will give up on soon
+                    LockSupport.parkNanos(BACKOFF_NANOS);
+                }
+            }
+        }
+    }
+
+    /**
+     * marks a range of sequences as missing, so the frames after them don't wait for them. safe to call from multiple threads
+     * @param from first sequence without a frame
+     * @param to sequence after the last sequence without a frame
+     */
+    public void skip(long from, long to) {
+        if (from < to) {
+            skippedRanges.add(new long[] { from, to });
+        }
+    }
+
+    private void dropFrame(Frame frame) {
+        droppedFrames.incrementAndGet();
+        if (frame.getSequence() >= 0) {
+            skip(frame.getSequence(), frame.getSequence() + 1);
+        }
+    }
+
+    private void spillFrame(Frame frame) {
+        try {
+            spill.write(frame);
+            spilledFrames.incrementAndGet();
+        } catch (IOException e) {
+            logger.error("Error spilling a frame to disk. Dropping it...", e);
+            dropFrame(frame);
+        }
+    }
+
+    private boolean tryOffer(Frame frame) {
+        long position = enqueuePosition.get();
+        while (true) {
+            final int index = (int) (position & mask);
+            final long difference = sequences.get(index) - position;
+            if (difference == 0) {
+                if (position - dequeuePosition.get() + earlyFrameCount >= mask + 1) {
+                    // there's a free slot, but the frames waiting on earlier frames are taking up the rest of the capacity
+                    return false;
+                }
+                if (enqueuePosition.compareAndSet(position, position + 1)) {
+                    slots.set(index, frame);
+                    // publishes the frame to the consumer
+                    sequences.set(index, position + 1);
+                    final long depth = position + 1 - dequeuePosition.get();
+                    highWaterMark.accumulateAndGet(depth, Math::max);
+                    return true;
+                }
+                position = enqueuePosition.get();
+            } else if (difference < 0) {
+                // the slot still holds a frame from the previous lap, so the queue is full
+                return false;
+            } else {
+                // another producer claimed this position
+                position = enqueuePosition.get();
+            }
+        }
+    }
+
+    /**
+     * @return the oldest frame in memory, or null if there aren't any
+     */
+    private Frame poll() {
+        long position = dequeuePosition.get();
+        while (true) {
+            final int index = (int) (position & mask);
+            final long difference = sequences.get(index) - (position + 1);
+            if (difference == 0) {
+                if (dequeuePosition.compareAndSet(position, position + 1)) {
+                    final Frame frame = slots.getAndSet(index, null);
+                    // hands the slot back to producers for the next lap
+                    sequences.set(index, position + mask + 1);
+                    return frame;
+                }
+                position = dequeuePosition.get();
+            } else if (difference < 0) {
+                return null;
+            } else {
+                position = dequeuePosition.get();
+            }
+        }
+    }
+
+    /**
+     * waits for the next frame. should only be called by one thread
+     * @return the frame with the next sequence, or null if the queue has been closed and every frame has been taken
+     */
+    public Frame take() {
+        while (true) {
+            final Frame next = nextInSequence();
+            if (next != null) {
+                return next;
+            }
+            final Frame frame = takeArrived();
+            if (frame != null) {
+                if (frame.getSequence() < 0) {
+                    return frame;
+                }
+                if (frame.getSequence() < nextSequence) {
+                    // frames after it have already been taken, so it's too late to put it in order
+                    logger.warn("Frame {} arrived after frames that were captured after it. Dropping it...", frame.getSequence());
+                    if (frame.getSequence() >= abandonedBefore) {
+                        droppedFrames.incrementAndGet();
+                    }
+                    continue;
+                }
+                earlyFrames.put(frame.getSequence(), frame);
+                earlyFrameCount = earlyFrames.size();
+                if (earlyFrames.size() >= getCapacity()) {
+                    abandonMissingFrames();
+                }
+                continue;
+            }
+            if (!skippedRanges.isEmpty()) {
+                continue;
+            }
+            if (closed && getDepth() == 0 && (spill == null || spill.isEmpty())) {
+                if (earlyFrames.isEmpty()) {
+                    return null;
+                }
+                // nothing else is coming, so the frames still waiting on missing sequences are taken in order without them
+                nextSequence = earlyFrames.firstKey();
+                continue;
+            }
+            LockSupport.parkNanos(BACKOFF_NANOS);
+        }
+    }
+
+    /**
+     * stops waiting for the frames before the first waiting frame, so that frames that will never be reported as
+     * missing can't hold back more than a queue's worth of frames. the frames given up on are counted as dropped
+     */
+    private void abandonMissingFrames() {
+        final long first = earlyFrames.firstKey();
+        logger.warn("{} frames before frame {} haven't arrived, and {} frames are waiting for them. Continuing without them...", first - nextSequence, first, earlyFrames.size());
+        droppedFrames.addAndGet(first - nextSequence);
+        nextSequence = first;
+        abandonedBefore = first;
+    }
+
+    /**
+     * @return the frame with the next sequence if it has arrived, skipping over missing sequences, or null if it hasn't arrived yet
+     */
+    private Frame nextInSequence() {
+        long[] range;
+        while ((range = skippedRanges.poll()) != null) {
+            missingSequences.merge(range[0], range[1], Math::max);
+        }
+        while (true) {
+            final Frame frame = earlyFrames.remove(nextSequence);
+            if (frame != null) {
+                earlyFrameCount = earlyFrames.size();
+                nextSequence++;
+                return frame;
+            }
+            final Map.Entry<Long, Long> missing = missingSequences.floorEntry(nextSequence);
+            if (missing == null || missing.getValue() <= nextSequence) {
+                // ranges that end before the next sequence won't be needed again
+                missingSequences.headMap(nextSequence, true).clear();
+                return null;
+            }
+            nextSequence = missing.getValue();
+        }
+    }
+
+    /**
+     * @return a frame that has been put in the queue, in the order they were put in, or null if there aren't any
+     */
+    private Frame takeArrived() {
+        // frames in memory are always older than spilled ones
+        final Frame frame = poll();
+        if (frame != null || spill == null || spill.isEmpty()) {
+            return frame;
+        }
+        try {
+            return spill.read();
+        } catch (IOException e) {
+            // the rest of the file can't be trusted once a frame is unreadable, so every spilled frame is dropped
+            final long[] discarded = spill.discard();
+            logger.error("Error reading a spilled frame back from disk. Dropping the {} spilled frames...", discarded.length, e);
+            droppedFrames.addAndGet(discarded.length);
+            for (long sequence : discarded) {
+                if (sequence >= 0) {
+                    skip(sequence, sequence + 1);
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * stops the queue from accepting frames. frames that are already queued can still be taken
+     */
+    public void close() {
+        closed = true;
+    }
+
+    /**
+     * deletes the spill file, if there is one. should be called once the consumer is done with the queue
+     */
+    public void release() {
+        if (spill != null) {
+            try {
+                spill.close();
+            } catch (IOException e) {
+                logger.warn("Error deleting spill file.", e);
+            }
+        }
+    }
+
+    public int getCapacity() {
+        return mask + 1;
+    }
+
+    /**
+     * @return the number of frames currently held in memory, not counting frames waiting for the frames before them
+     */
+    public int getDepth() {
+        return (int) Math.max(0, enqueuePosition.get() - dequeuePosition.get());
+    }
+
+    /**
+     * @return the number of frames that have been taken out of the queue but are waiting for frames captured before them
+     */
+    public int getWaitingFrames() {
+        return earlyFrameCount;
+    }
+
+    /**
+     * @return the most frames that have been in memory at once
+     */
+    public long getHighWaterMark() {
+        return highWaterMark.get();
+    }
+
+    public long getDroppedFrames() {
+        return droppedFrames.get();
+    }
+
+    public long getSpilledFrames() {
+        return spilledFrames.get();
+    }
+
+}
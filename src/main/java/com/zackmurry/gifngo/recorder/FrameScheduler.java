@@ -0,0 +1,199 @@
+package com.zackmurry.gifngo.recorder;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.Setter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * hands out capture ticks to the recording threads on a fixed timeline. tick n is due n frame intervals after the start,
+ * measured with System.nanoTime(), so the frame rate doesn't drift the way it does when each thread sleeps for whole
+ * milliseconds after every capture. threads pull the next tick when they're free, so a slow capture on one thread
+ * is covered by another thread instead of delaying every capture after it.
+ * the scheduler also measures how late threads wake up for their ticks, which is logged when recording stops
+ */
+public class FrameScheduler {
+
+    private static final Logger logger = LoggerFactory.getLogger(FrameScheduler.class);
+
+    @Getter
+    @AllArgsConstructor
+    public static class Tick {
+
+        // number of the frame in the recording, starting at 0
+        private final long sequence;
+
+        // when the tick was due, in nanoseconds since the start of the recording
+        private final long dueNanos;
+
+    }
+
+    /**
+     * told about ticks that are skipped, so that whatever is waiting for their frames can stop waiting
+     */
+    public interface SkipListener {
+
+        /**
+         * @param from first skipped sequence
+         * @param to sequence after the last skipped sequence
+         */
+        void ticksSkipped(long from, long to);
+
+    }
+
+    @Getter
+    private final long intervalNanos;
+
+    @Setter
+    private SkipListener skipListener;
+
+    // only every stride-th tick is handed out, which lowers the frame rate without moving the ticks that are left
+    @Getter
+    private volatile int stride = 1;
+
+    private volatile long startNanos;
+    private volatile boolean running;
+    private final AtomicLong nextSequence = new AtomicLong();
+
+    private final LongAdder dispatchedTicks = new LongAdder();
+    private final LongAdder skippedTicks = new LongAdder();
+    private final LongAdder decimatedTicks = new LongAdder();
+    private final LongAdder totalLatenessNanos = new LongAdder();
+    private final AtomicLong maxLatenessNanos = new AtomicLong();
+
+    public FrameScheduler(double framesPerSecond) {
+        this.intervalNanos = Math.round(TimeUnit.SECONDS.toNanos(1) / framesPerSecond);
+    }
+
+    /**
+     * starts the timeline. tick 0 is due right away
+     */
+    public void start() {
+        startNanos = System.nanoTime();
+        nextSequence.set(0);
+        running = true;
+    }
+
+    /**
+     * stops handing out ticks. threads waiting for a tick get null once their tick would have been due
+     */
+    public void stop() {
+        running = false;
+    }
+
+    /**
+     * waits until the next tick that hasn't been taken by another thread is due
+     * @return the tick, or null if the scheduler has been stopped
+     */
+    public Tick nextTick() {
+        while (running) {
+            final long sequence = nextSequence.get();
+            final long elapsed = System.nanoTime() - startNanos;
+            // if every thread has fallen behind, ticks that are more than an interval late are skipped.
+            // capturing them now would just bunch frames up, and the time between frames is kept by the timestamps anyway
+            final long latestDue = elapsed / intervalNanos;
+            if (latestDue > sequence) {
+                if (nextSequence.compareAndSet(sequence, latestDue)) {
+                    skippedTicks.add(latestDue - sequence);
+                    if (skipListener != null) {
+                        skipListener.ticksSkipped(sequence, latestDue);
+                    }
+                }
+                continue;
+            }
+            final int currentStride = stride;
+            if (sequence % currentStride != 0) {
+                final long aligned = (sequence / currentStride + 1) * currentStride;
+                if (nextSequence.compareAndSet(sequence, aligned)) {
+                    decimatedTicks.add(aligned - sequence);
+                    if (skipListener != null) {
+                        skipListener.ticksSkipped(sequence, aligned);
+                    }
+                }
+                continue;
+            }
+            if (!nextSequence.compareAndSet(sequence, sequence + 1)) {
+                continue;
+            }
+
+            final long due = startNanos + sequence * intervalNanos;
+            long remaining;
+            while ((remaining = due - System.nanoTime()) > 0) {
+                if (!running) {
+                    // the sequence was already claimed, so whatever is waiting for its frame is told it isn't coming
+                    if (skipListener != null) {
+                        skipListener.ticksSkipped(sequence, sequence + 1);
+                    }
+                    return null;
+                }
+                LockSupport.parkNanos(this, remaining);
+            }
+            recordLateness(System.nanoTime() - due);
+            return new Tick(sequence, due - startNanos);
+        }
+        return null;
+    }
+
+    /**
+     * @return milliseconds between the start of the timeline and a System.nanoTime() value
+     */
+    public int millisSinceStart(long nanoTime) {
+        return (int) TimeUnit.NANOSECONDS.toMillis(nanoTime - startNanos);
+    }
+
+    /**
+     * @param stride how many ticks to advance between the ticks that are handed out. 1 hands out every tick
+     */
+    public void setStride(int stride) {
+        if (stride <= 0) {
+            throw new IllegalArgumentException("Stride must be greater than 0.");
+        }
+        this.stride = stride;
+    }
+
+    /**
+     * @return the number of ticks that were skipped because they were late
+     */
+    public long getSkippedTicks() {
+        return skippedTicks.sum();
+    }
+
+    /**
+     * @return the number of ticks that were left out because of the stride
+     */
+    public long getDecimatedTicks() {
+        return decimatedTicks.sum();
+    }
+
+    private void recordLateness(long latenessNanos) {
+        dispatchedTicks.increment();
+        totalLatenessNanos.add(latenessNanos);
+        maxLatenessNanos.accumulateAndGet(latenessNanos, Math::max);
+    }
+
+    /**
+     * logs how late threads woke up for their ticks, and how many ticks were skipped
+     */
+    public void logJitter() {
+        final long ticks = dispatchedTicks.sum();
+        if (ticks == 0) {
+            return;
+        }
+        logger.debug("Captured {} ticks. Threads woke up {} ms late on average and {} ms late at most.", ticks,
+                String.format("%.3f", totalLatenessNanos.sum() / (double) ticks / 1_000_000d),
+                String.format("%.3f", maxLatenessNanos.get() / 1_000_000d));
+        if (getSkippedTicks() > 0) {
+            logger.warn("Failure to keep up with frame rate: skipped {} frames.", getSkippedTicks());
+        }
+        if (getDecimatedTicks() > 0) {
+            logger.info("Lowered the frame rate to keep up, leaving out {} frames.", getDecimatedTicks());
+        }
+    }
+
+}
@@ -0,0 +1,26 @@
+package com.zackmurry.gifngo.recorder;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * where a ScreenRecorder gets its frames from. the screen is the usual source, but frames can also be generated
+ * or replayed from disk, so that the whole pipeline can be run and measured without a display.
+ * every recording thread shares the same source, so implementations have to be thread-safe
+ */
+public interface FrameSource {
+
+    /**
+     * @param sequence number of the frame in the recording, starting at 0. recording threads take turns,
+     *                 so a thread asks for every n-th frame when there are n threads
+     * @return the frame, or null if the source has run out of frames
+     */
+    BufferedImage nextFrame(long sequence);
+
+    /**
+     * releases anything the source holds on to. called when a recording stops
+     */
+    default void close() {
+
+    }
+
+}
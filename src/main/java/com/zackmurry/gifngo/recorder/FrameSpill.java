@@ -0,0 +1,121 @@
+package com.zackmurry.gifngo.recorder;
+
+import com.zackmurry.gifngo.models.Frame;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+
+/**
+ * first-in-first-out queue of frames that is stored in a temporary file, in the layout described in RawFrames.
+ * used by FrameRingBuffer to hold frames that don't fit in memory when the encoder falls behind
+ */
+class FrameSpill implements AutoCloseable {
+
+    private final File file;
+    private final FileChannel channel;
+    private long readPosition;
+    private long writePosition;
+    private volatile int size; // only changed while synchronized, but read without locking
+
+    // sequences of the spilled frames, oldest first, so they can be reported as missing if the file can't be read back
+    private final ArrayDeque<Long> sequences = new ArrayDeque<>();
+
+    FrameSpill() throws IOException {
+        this(File.createTempFile("gifngo-spill", ".frames"));
+    }
+
+    /**
+     * @param file file to spill frames to. its contents are overwritten
+     */
+    FrameSpill(File file) throws IOException {
+        this.file = file;
+        file.deleteOnExit();
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    synchronized void write(Frame frame) throws IOException {
+        final ByteBuffer buffer = RawFrames.encode(frame);
+        while (buffer.hasRemaining()) {
+            writePosition += channel.write(buffer, writePosition);
+        }
+        sequences.add(frame.getSequence());
+        size++;
+    }
+
+    /**
+     * @return the oldest frame in the spill, or null if it's empty
+     */
+    synchronized Frame read() throws IOException {
+        if (size == 0) {
+            return null;
+        }
+        final ByteBuffer header = ByteBuffer.allocate(RawFrames.HEADER_BYTES);
+        readFully(header);
+        final int timeSinceStart = header.getInt();
+        final int width = header.getInt();
+        final int height = header.getInt();
+        final long sequence = header.getLong();
+        if (width <= 0 || height <= 0) {
+            throw new IOException("Corrupted frame in spill file " + file.getAbsolutePath());
+        }
+
+        final ByteBuffer pixels = ByteBuffer.allocate(RawFrames.pixelBytes(width, height));
+        readFully(pixels);
+        final BufferedImage image = RawFrames.decodePixels(pixels, width, height);
+
+        sequences.poll();
+        if (--size == 0) {
+            // the encoder has caught up, so the space on the disk can be reused
+            readPosition = 0;
+            writePosition = 0;
+            channel.truncate(0);
+        }
+        return new Frame(image, timeSinceStart, sequence);
+    }
+
+    /**
+     * throws away every spilled frame, such as after a frame couldn't be read back, since the frames after it can't be found
+     * @return the sequences of the frames that were thrown away
+     */
+    synchronized long[] discard() {
+        final long[] discarded = sequences.stream().mapToLong(Long::longValue).toArray();
+        sequences.clear();
+        size = 0;
+        readPosition = 0;
+        writePosition = 0;
+        try {
+            channel.truncate(0);
+        } catch (IOException e) {
+            // the next frames overwrite it anyway
+        }
+        return discarded;
+    }
+
+    private void readFully(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, readPosition);
+            if (read < 0) {
+                throw new IOException("Unexpected end of spill file " + file.getAbsolutePath());
+            }
+            readPosition += read;
+        }
+        buffer.flip();
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        channel.close();
+        Files.deleteIfExists(file.toPath());
+    }
+
+}
@@ -2,27 +2,226 @@ package com.zackmurry.gifngo.recorder;
 
 import com.zackmurry.gifngo.models.ImageDimension;
 
-import java.awt.*;
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.SinglePixelPackedSampleModel;
 
 /**
  * resizes images to the size provided.
- * this is done to reduce output file size, but it also makes image[] to gif conversion quicker
+ * this is done to reduce output file size, but it also makes image[] to gif conversion quicker.
+ * resized images are TYPE_3BYTE_BGR, which is what GifConverter reads pixels from, so they aren't converted again when they're encoded
  */
 public class ImageResizer {
 
-    public static BufferedImage resize(BufferedImage image, int width, int height) {
-        Image resizedImg = image.getScaledInstance(width, height, Image.SCALE_SMOOTH);
-        BufferedImage bufferedImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+    /**
+     * rows of an image that can be resized independently of the other rows
+     */
+    interface RowTask {
+        void run(int startRow, int endRow);
+    }
+
+    /**
+     * decides how the rows of an image are divided up when it's resized
+     */
+    interface RowSplitter {
+
+        // every row is done at once, on the calling thread
+        RowSplitter SERIAL = (sourcePixels, rowCount, task) -> task.run(0, rowCount);
+
+        /**
+         * @param sourcePixels number of pixels read to make the rows, which is roughly how much work they are
+         */
+        void split(int sourcePixels, int rowCount, RowTask task);
+
+    }
 
-        Graphics2D g2d = bufferedImage.createGraphics();
-        g2d.drawImage(resizedImg, 0, 0, null);
-        g2d.dispose();
-        return bufferedImage;
+    public static BufferedImage resize(BufferedImage image, int width, int height) {
+        return resize(image, width, height, ResizeQuality.BOX);
     }
 
     public static BufferedImage resize(BufferedImage image, ImageDimension dimension) {
         return resize(image, dimension.getWidth(), dimension.getHeight());
     }
 
+    public static BufferedImage resize(BufferedImage image, ImageDimension dimension, ResizeQuality quality) {
+        return resize(image, dimension.getWidth(), dimension.getHeight(), quality);
+    }
+
+    public static BufferedImage resize(BufferedImage image, int width, int height, ResizeQuality quality) {
+        return resize(image, width, height, quality, RowSplitter.SERIAL);
+    }
+
+    static BufferedImage resize(BufferedImage image, int width, int height, ResizeQuality quality, RowSplitter splitter) {
+        int sourceWidth = image.getWidth();
+        int sourceHeight = image.getHeight();
+        int[] source = getRGBPixels(image);
+
+        if (quality == ResizeQuality.PROGRESSIVE) {
+            // each halving step is an exact 2x2 box filter, so no source pixel is skipped
+            while (sourceWidth >= width * 2 && sourceHeight >= height * 2) {
+                source = halve(source, sourceWidth, sourceHeight, splitter);
+                sourceWidth /= 2;
+                sourceHeight /= 2;
+            }
+            quality = ResizeQuality.BILINEAR;
+        }
+
+        final BufferedImage resized = new BufferedImage(width, height, BufferedImage.TYPE_3BYTE_BGR);
+        final byte[] destination = ((DataBufferByte) resized.getRaster().getDataBuffer()).getData();
+        switch (quality) {
+            case NEAREST:
+                nearest(source, sourceWidth, sourceHeight, destination, width, height, splitter);
+                break;
+            case BILINEAR:
+                bilinear(source, sourceWidth, sourceHeight, destination, width, height, splitter);
+                break;
+            default:
+                box(source, sourceWidth, sourceHeight, destination, width, height, splitter);
+                break;
+        }
+        return resized;
+    }
+
+    /**
+     * @return the pixels of an image as 0xRRGGBB ints, without copying them if the image already stores them that way
+     */
+    private static int[] getRGBPixels(BufferedImage image) {
+        // screen captures are TYPE_INT_RGB, so their pixels can usually be read straight from the raster
+        if ((image.getType() == BufferedImage.TYPE_INT_RGB || image.getType() == BufferedImage.TYPE_INT_ARGB)
+                && image.getRaster().getSampleModel() instanceof SinglePixelPackedSampleModel
+                && ((SinglePixelPackedSampleModel) image.getRaster().getSampleModel()).getScanlineStride() == image.getWidth()
+                && image.getRaster().getSampleModelTranslateX() == 0
+                && image.getRaster().getSampleModelTranslateY() == 0) {
+            final DataBufferInt buffer = (DataBufferInt) image.getRaster().getDataBuffer();
+            if (buffer.getOffset() == 0 && buffer.getNumBanks() == 1) {
+                return buffer.getData();
+            }
+        }
+        return image.getRGB(0, 0, image.getWidth(), image.getHeight(), null, 0, image.getWidth());
+    }
+
+    /**
+     * maps the center of each destination pixel to a source coordinate, in 1/256ths of a pixel
+     */
+    private static int sourceCoordinate(int destination, int sourceSize, int destinationSize) {
+        final long scaled = ((2L * destination + 1) * sourceSize * 256) / (2L * destinationSize) - 128;
+        return (int) Math.max(0, Math.min((sourceSize - 1) * 256L, scaled));
+    }
+
+    private static void nearest(int[] source, int sourceWidth, int sourceHeight, byte[] destination, int width, int height, RowSplitter splitter) {
+        final int[] sourceX = new int[width];
+        for (int x = 0; x < width; x++) {
+            sourceX[x] = (int) ((2L * x + 1) * sourceWidth / (2L * width));
+        }
+        splitter.split(width * height, height, (startRow, endRow) -> {
+            for (int y = startRow; y < endRow; y++) {
+                final int sourceRow = (int) ((2L * y + 1) * sourceHeight / (2L * height)) * sourceWidth;
+                int k = y * width * 3;
+                for (int x = 0; x < width; x++) {
+                    final int rgb = source[sourceRow + sourceX[x]];
+                    destination[k++] = (byte) rgb;
+                    destination[k++] = (byte) (rgb >> 8);
+                    destination[k++] = (byte) (rgb >> 16);
+                }
+            }
+        });
+    }
+
+    private static void bilinear(int[] source, int sourceWidth, int sourceHeight, byte[] destination, int width, int height, RowSplitter splitter) {
+        // the two source columns and the weight of the second one are the same for every row
+        final int[] left = new int[width];
+        final int[] right = new int[width];
+        final int[] rightWeight = new int[width];
+        for (int x = 0; x < width; x++) {
+            final int coordinate = sourceCoordinate(x, sourceWidth, width);
+            left[x] = coordinate >> 8;
+            right[x] = Math.min(sourceWidth - 1, left[x] + 1);
+            rightWeight[x] = coordinate & 0xff;
+        }
+        splitter.split(width * height * 4, height, (startRow, endRow) -> {
+            for (int y = startRow; y < endRow; y++) {
+                final int coordinate = sourceCoordinate(y, sourceHeight, height);
+                final int top = (coordinate >> 8) * sourceWidth;
+                final int bottom = Math.min(sourceHeight - 1, (coordinate >> 8) + 1) * sourceWidth;
+                final int bottomWeight = coordinate & 0xff;
+                int k = y * width * 3;
+                for (int x = 0; x < width; x++) {
+                    final int topLeft = source[top + left[x]];
+                    final int topRight = source[top + right[x]];
+                    final int bottomLeft = source[bottom + left[x]];
+                    final int bottomRight = source[bottom + right[x]];
+                    for (int shift = 0; shift <= 16; shift += 8) {
+                        final int upper = ((topLeft >> shift) & 0xff) * (256 - rightWeight[x]) + ((topRight >> shift) & 0xff) * rightWeight[x];
+                        final int lower = ((bottomLeft >> shift) & 0xff) * (256 - rightWeight[x]) + ((bottomRight >> shift) & 0xff) * rightWeight[x];
+                        destination[k++] = (byte) ((upper * (256 - bottomWeight) + lower * bottomWeight + (1 << 15)) >> 16);
+                    }
+                }
+            }
+        });
+    }
+
+    private static void box(int[] source, int sourceWidth, int sourceHeight, byte[] destination, int width, int height, RowSplitter splitter) {
+        // each destination pixel covers the source pixels from its start up to the next pixel's start, and at least one
+        final int[] columnStart = new int[width + 1];
+        for (int x = 0; x <= width; x++) {
+            columnStart[x] = (int) ((long) x * sourceWidth / width);
+        }
+        splitter.split(Math.max(sourceWidth * sourceHeight, width * height), height, (startRow, endRow) -> {
+            for (int y = startRow; y < endRow; y++) {
+                final int rowStart = (int) ((long) y * sourceHeight / height);
+                final int rowEnd = Math.max(rowStart + 1, (int) ((long) (y + 1) * sourceHeight / height));
+                int k = y * width * 3;
+                for (int x = 0; x < width; x++) {
+                    final int start = columnStart[x];
+                    final int end = Math.max(start + 1, columnStart[x + 1]);
+                    long red = 0;
+                    long green = 0;
+                    long blue = 0;
+                    for (int row = rowStart; row < rowEnd; row++) {
+                        final int offset = row * sourceWidth;
+                        for (int column = start; column < end; column++) {
+                            final int rgb = source[offset + column];
+                            red += (rgb >> 16) & 0xff;
+                            green += (rgb >> 8) & 0xff;
+                            blue += rgb & 0xff;
+                        }
+                    }
+                    final int count = (rowEnd - rowStart) * (end - start);
+                    destination[k++] = (byte) ((blue + count / 2) / count);
+                    destination[k++] = (byte) ((green + count / 2) / count);
+                    destination[k++] = (byte) ((red + count / 2) / count);
+                }
+            }
+        });
+    }
+
+    /**
+     * @return an image half the width and height of the source, where each pixel is the average of a 2x2 block
+     */
+    private static int[] halve(int[] source, int sourceWidth, int sourceHeight, RowSplitter splitter) {
+        final int width = sourceWidth / 2;
+        final int height = sourceHeight / 2;
+        final int[] halved = new int[width * height];
+        splitter.split(width * height * 4, height, (startRow, endRow) -> {
+            for (int y = startRow; y < endRow; y++) {
+                final int top = 2 * y * sourceWidth;
+                final int bottom = top + sourceWidth;
+                for (int x = 0; x < width; x++) {
+                    final int a = source[top + 2 * x];
+                    final int b = source[top + 2 * x + 1];
+                    final int c = source[bottom + 2 * x];
+                    final int d = source[bottom + 2 * x + 1];
+                    int rgb = 0;
+                    for (int shift = 0; shift <= 16; shift += 8) {
+                        final int sum = ((a >> shift) & 0xff) + ((b >> shift) & 0xff) + ((c >> shift) & 0xff) + ((d >> shift) & 0xff);
+                        rgb |= ((sum + 2) >> 2) << shift;
+                    }
+                    halved[y * width + x] = rgb;
+                }
+            }
+        });
+        return halved;
+    }
+
 }
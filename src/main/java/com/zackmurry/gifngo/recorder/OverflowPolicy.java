@@ -0,0 +1,17 @@
+package com.zackmurry.gifngo.recorder;
+
+/**
+ * what a FrameRingBuffer does with a new frame when it's full because the encoder has fallen behind the recorders
+ */
+public enum OverflowPolicy {
+
+    // wait for the encoder to make room. this slows down capturing, which lowers the frame rate
+    BLOCK,
+
+    // throw away the oldest frame that hasn't been encoded yet
+    DROP_OLDEST,
+
+    // write frames to a temporary file until the encoder catches up
+    SPILL_TO_DISK
+
+}
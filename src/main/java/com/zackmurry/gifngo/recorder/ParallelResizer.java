@@ -0,0 +1,136 @@
+package com.zackmurry.gifngo.recorder;
+
+import com.zackmurry.gifngo.models.Frame;
+import com.zackmurry.gifngo.models.ImageDimension;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Consumer;
+
+/**
+ * resizes frames on a pool of threads and hands them to a consumer in the order they were submitted, so that
+ * frames are resized while earlier frames are being encoded instead of in a separate pass before encoding starts.
+ * frames big enough to be worth it (like 4K captures) are also split into bands of rows that are resized in parallel.
+ * with one thread, frames are resized on the thread that submits them
+ */
+public class ParallelResizer {
+
+    private static final Logger logger = LoggerFactory.getLogger(ParallelResizer.class);
+
+    // frames that read fewer pixels than this are resized in one piece, since splitting them costs more than it saves
+    private static final int MIN_SPLIT_PIXELS = 1920 * 1080;
+
+    private final ImageDimension outputDimensions;
+    private final ResizeQuality quality;
+    private final Consumer<Frame> downstream;
+
+    private final ForkJoinPool pool; // null when resizing on the submitting thread
+    private final ImageResizer.RowSplitter splitter;
+    private final int maxPendingFrames;
+    private final Deque<CompletableFuture<Frame>> pendingFrames = new ArrayDeque<>();
+
+    /**
+     * @param threads number of threads to resize on
+     * @param downstream receives the resized frames in order, on the thread that calls submit() or flush()
+     */
+    public ParallelResizer(ImageDimension outputDimensions, ResizeQuality quality, int threads, Consumer<Frame> downstream) {
+        this.outputDimensions = outputDimensions;
+        this.quality = quality;
+        this.downstream = downstream;
+        if (threads > 1) {
+            pool = new ForkJoinPool(threads);
+            splitter = this::splitIntoBands;
+            // a few frames per thread are resized ahead so that no thread waits on the next frame, without holding too many captures
+            maxPendingFrames = threads * 2;
+        } else {
+            pool = null;
+            splitter = ImageResizer.RowSplitter.SERIAL;
+            maxPendingFrames = 1;
+        }
+    }
+
+    /**
+     * starts resizing a frame, and hands any frames that are done (in order) to the downstream consumer.
+     * if too many frames are being resized, this waits for the oldest one
+     */
+    public void submit(Frame frame) {
+        if (pool == null) {
+            downstream.accept(resize(frame));
+            return;
+        }
+        pendingFrames.add(CompletableFuture.supplyAsync(() -> resize(frame), pool));
+        while (!pendingFrames.isEmpty() && (pendingFrames.size() > maxPendingFrames || pendingFrames.peek().isDone())) {
+            emit(pendingFrames.poll());
+        }
+    }
+
+    /**
+     * waits for every submitted frame to be resized and handed downstream
+     */
+    public void flush() {
+        while (!pendingFrames.isEmpty()) {
+            emit(pendingFrames.poll());
+        }
+    }
+
+    /**
+     * hands every frame still being resized downstream and stops the pool's threads
+     */
+    public void close() {
+        flush();
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+
+    private void emit(CompletableFuture<Frame> pendingFrame) {
+        final Frame frame;
+        try {
+            frame = pendingFrame.join();
+        } catch (CompletionException e) {
+            logger.error("Error resizing a frame. Skipping it...", e.getCause());
+            return;
+        }
+        downstream.accept(frame);
+    }
+
+    private Frame resize(Frame frame) {
+        final BufferedImage image = frame.getImage();
+        if (image.getWidth() == outputDimensions.getWidth() && image.getHeight() == outputDimensions.getHeight()
+                && image.getType() == BufferedImage.TYPE_3BYTE_BGR) {
+            // already resized when it was captured
+            return frame;
+        }
+        frame.setImage(ImageResizer.resize(frame.getImage(), outputDimensions.getWidth(), outputDimensions.getHeight(), quality, splitter));
+        return frame;
+    }
+
+    /**
+     * splits big images into one band of rows per thread. the bands are forked into the pool,
+     * so a frame's bands can be picked up by threads that are done with their own frames
+     */
+    private void splitIntoBands(int sourcePixels, int rowCount, ImageResizer.RowTask task) {
+        final int bands = Math.min(rowCount, pool.getParallelism());
+        if (sourcePixels < MIN_SPLIT_PIXELS || bands <= 1 || !ForkJoinTask.inForkJoinPool()) {
+            task.run(0, rowCount);
+            return;
+        }
+        final List<ForkJoinTask<?>> bandTasks = new ArrayList<>(bands);
+        for (int band = 0; band < bands; band++) {
+            final int startRow = band * rowCount / bands;
+            final int endRow = (band + 1) * rowCount / bands;
+            bandTasks.add(ForkJoinTask.adapt(() -> task.run(startRow, endRow)));
+        }
+        ForkJoinTask.invokeAll(bandTasks);
+    }
+
+}
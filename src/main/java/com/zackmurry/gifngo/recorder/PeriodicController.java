@@ -0,0 +1,65 @@
+package com.zackmurry.gifngo.recorder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * runs check() every so often on a daemon thread of its own while recording, for controllers that adjust the recording
+ * as it goes. once stop() returns, check() won't run again, so it can't change anything after the recording has stopped
+ */
+public abstract class PeriodicController {
+
+    private static final Logger logger = LoggerFactory.getLogger(PeriodicController.class);
+
+    private static final long CHECK_INTERVAL_MS = 500;
+    private static final long STOP_TIMEOUT_MS = 5000;
+
+    private final String threadName;
+
+    private ScheduledExecutorService timer;
+    private volatile boolean stopped;
+
+    protected PeriodicController(String threadName) {
+        this.threadName = threadName;
+    }
+
+    public void start() {
+        timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, threadName);
+            thread.setDaemon(true);
+            return thread;
+        });
+        timer.scheduleAtFixedRate(() -> {
+            if (!stopped) {
+                check();
+            }
+        }, CHECK_INTERVAL_MS, CHECK_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * stops checking, and waits for a check that's already running to finish so that it can't change anything afterwards
+     */
+    public void stop() {
+        stopped = true;
+        if (timer != null) {
+            timer.shutdownNow();
+            try {
+                if (!timer.awaitTermination(STOP_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                    logger.warn("Timed out waiting for the last check of {} to finish.", threadName);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * looks at how the recording is doing and adjusts it. only called on the controller's thread
+     */
+    protected abstract void check();
+
+}
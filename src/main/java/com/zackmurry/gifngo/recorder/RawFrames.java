@@ -0,0 +1,55 @@
+package com.zackmurry.gifngo.recorder;
+
+import com.zackmurry.gifngo.models.Frame;
+
+import java.awt.image.BufferedImage;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+
+/**
+ * layout of uncompressed frames on disk: the time since the start of the recording, the width, and the height as ints,
+ * and the capture sequence as a long, followed by the pixels as 0xRRGGBB ints, row by row. frames are written back to back.
+ * FrameSpill stores frames like this, and ReplayFrameSource can replay files of them
+ */
+final class RawFrames {
+
+    // time since start, width, height, and sequence
+    static final int HEADER_BYTES = 3 * Integer.BYTES + Long.BYTES;
+
+    private RawFrames() {
+
+    }
+
+    /**
+     * @return a buffer holding the frame's header and pixels, ready to be written
+     */
+    static ByteBuffer encode(Frame frame) {
+        final BufferedImage image = frame.getImage();
+        final int width = image.getWidth();
+        final int height = image.getHeight();
+        final ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + pixelBytes(width, height));
+        buffer.putInt(frame.getTimeSinceStart()).putInt(width).putInt(height).putLong(frame.getSequence());
+        buffer.asIntBuffer().put(image.getRGB(0, 0, width, height, null, 0, width));
+        buffer.rewind();
+        return buffer;
+    }
+
+    static int pixelBytes(int width, int height) {
+        return width * height * Integer.BYTES;
+    }
+
+    /**
+     * @param pixels buffer positioned at the start of a frame's pixels
+     */
+    static BufferedImage decodePixels(ByteBuffer pixels, int width, int height) {
+        final IntBuffer rgb = pixels.asIntBuffer();
+        final int[] row = new int[width];
+        final BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < height; y++) {
+            rgb.get(row);
+            image.setRGB(0, y, width, 1, row, 0, width);
+        }
+        return image;
+    }
+
+}
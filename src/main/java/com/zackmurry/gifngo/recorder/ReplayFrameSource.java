@@ -0,0 +1,179 @@
+package com.zackmurry.gifngo.recorder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * replays frames from disk, one per capture, at whatever rate the recorders capture at. the frames can either be
+ * a folder of images played in order of their names, a capture file (like the ones in the captures folder),
+ * or a file of raw frames in the layout described in RawFrames. the source runs out of frames at the end, which stops the recording threads
+ */
+public class ReplayFrameSource implements FrameSource {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReplayFrameSource.class);
+
+    // images to replay, if replaying a folder
+    private final File[] imageFiles;
+
+    // capture file, if replaying one
+    private final CaptureFile.Reader captureReader;
+
+    // raw frame file and where each frame in it starts, if replaying raw frames
+    private final FileChannel channel;
+    private final long[] frameOffsets;
+
+    /**
+     * @param path a folder of images, a capture file, or a file of raw frames
+     * @throws IOException if the path can't be read
+     */
+    public ReplayFrameSource(File path) throws IOException {
+        if (path.isDirectory()) {
+            final File[] files = path.listFiles(File::isFile);
+            if (files == null) {
+                throw new IOException("Couldn't list the images in " + path.getAbsolutePath());
+            }
+            // the captures folder names images after their time since the start, so numeric names are sorted as numbers
+            Arrays.sort(files, Comparator.comparingLong(ReplayFrameSource::numericName).thenComparing(File::getName));
+            imageFiles = files;
+            captureReader = null;
+            channel = null;
+            frameOffsets = null;
+            logger.debug("Replaying {} images from {}.", imageFiles.length, path.getAbsolutePath());
+        } else if (CaptureFile.isCaptureFile(path)) {
+            imageFiles = null;
+            captureReader = new CaptureFile.Reader(path);
+            channel = null;
+            frameOffsets = null;
+            logger.debug("Replaying {} frames from capture file {}.", captureReader.getFrameCount(), path.getAbsolutePath());
+        } else {
+            imageFiles = null;
+            captureReader = null;
+            channel = FileChannel.open(path.toPath(), StandardOpenOption.READ);
+            frameOffsets = indexFrames(channel);
+            logger.debug("Replaying {} raw frames from {}.", frameOffsets.length, path.getAbsolutePath());
+        }
+    }
+
+    /**
+     * @return number of frames that will be replayed
+     */
+    public int getFrameCount() {
+        if (imageFiles != null) {
+            return imageFiles.length;
+        }
+        return captureReader != null ? captureReader.getFrameCount() : frameOffsets.length;
+    }
+
+    @Override
+    public BufferedImage nextFrame(long sequence) {
+        if (sequence >= getFrameCount()) {
+            return null;
+        }
+        try {
+            if (imageFiles != null) {
+                final BufferedImage image = ImageIO.read(imageFiles[(int) sequence]);
+                if (image == null) {
+                    throw new IOException("Unsupported image format: " + imageFiles[(int) sequence].getAbsolutePath());
+                }
+                return image;
+            }
+            if (captureReader != null) {
+                return captureReader.read((int) sequence).getImage();
+            }
+            final ByteBuffer header = ByteBuffer.allocate(RawFrames.HEADER_BYTES);
+            readFully(header, frameOffsets[(int) sequence]);
+            header.getInt(); // the time since start is replaced with the time the frame is replayed at
+            final int width = header.getInt();
+            final int height = header.getInt();
+            final ByteBuffer pixels = ByteBuffer.allocate(RawFrames.pixelBytes(width, height));
+            readFully(pixels, frameOffsets[(int) sequence] + RawFrames.HEADER_BYTES);
+            return RawFrames.decodePixels(pixels, width, height);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (captureReader != null) {
+            try {
+                captureReader.close();
+            } catch (IOException e) {
+                logger.warn("Error closing replayed capture file.");
+            }
+        }
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                logger.warn("Error closing replayed frame file.");
+            }
+        }
+    }
+
+    /**
+     * finds where every frame in a raw frame file starts by skipping from header to header
+     */
+    private static long[] indexFrames(FileChannel channel) throws IOException {
+        final List<Long> offsets = new ArrayList<>();
+        final ByteBuffer header = ByteBuffer.allocate(RawFrames.HEADER_BYTES);
+        long position = 0;
+        final long size = channel.size();
+        while (position + RawFrames.HEADER_BYTES <= size) {
+            header.clear();
+            while (header.hasRemaining()) {
+                if (channel.read(header, position + header.position()) < 0) {
+                    throw new IOException("Unexpected end of raw frame file.");
+                }
+            }
+            header.flip();
+            header.getInt();
+            final int width = header.getInt();
+            final int height = header.getInt();
+            if (width <= 0 || height <= 0) {
+                throw new IOException("Invalid frame size " + width + "x" + height + " in raw frame file.");
+            }
+            offsets.add(position);
+            position += RawFrames.HEADER_BYTES + RawFrames.pixelBytes(width, height);
+        }
+        if (position > size) {
+            // the last frame was cut off
+            offsets.remove(offsets.size() - 1);
+        }
+        return offsets.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        // positional reads don't move the channel's position, so threads can read different frames at the same time
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of raw frame file.");
+            }
+        }
+        buffer.flip();
+    }
+
+    private static long numericName(File file) {
+        final String name = file.getName();
+        final int extension = name.lastIndexOf('.');
+        try {
+            return Long.parseLong(extension > 0 ? name.substring(0, extension) : name);
+        } catch (NumberFormatException e) {
+            return Long.MAX_VALUE;
+        }
+    }
+
+}
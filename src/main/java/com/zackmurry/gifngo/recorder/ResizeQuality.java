@@ -0,0 +1,20 @@
+package com.zackmurry.gifngo.recorder;
+
+/**
+ * filter that ImageResizer uses to shrink or stretch an image, from fastest to smoothest
+ */
+public enum ResizeQuality {
+
+    // copy the closest source pixel. very fast, but thin lines and text can disappear when shrinking
+    NEAREST,
+
+    // blend the four closest source pixels. fast, but still skips pixels when shrinking to less than half the size
+    BILINEAR,
+
+    // halve the image until it's less than twice the output size, then finish with bilinear
+    PROGRESSIVE,
+
+    // average every source pixel that falls in each output pixel. the smoothest, and what ImageResizer used to do
+    BOX
+
+}
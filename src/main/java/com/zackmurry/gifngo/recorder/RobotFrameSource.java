@@ -0,0 +1,38 @@
+package com.zackmurry.gifngo.recorder;
+
+import com.zackmurry.gifngo.models.CaptureRegion;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+/**
+ * takes screenshots of a region of the screen with java.awt.Robot
+ */
+public class RobotFrameSource implements FrameSource {
+
+    private static final Logger logger = LoggerFactory.getLogger(RobotFrameSource.class);
+
+    private final Rectangle captureArea;
+
+    // each recording thread takes screenshots with its own Robot
+    private final ThreadLocal<Robot> robot = ThreadLocal.withInitial(() -> {
+        try {
+            return new Robot();
+        } catch (AWTException e) {
+            logger.error("Error creating a Robot to take screenshots with.");
+            throw new IllegalStateException(e);
+        }
+    });
+
+    public RobotFrameSource(CaptureRegion captureRegion) {
+        this.captureArea = captureRegion.toRectangle();
+    }
+
+    @Override
+    public BufferedImage nextFrame(long sequence) {
+        return robot.get().createScreenCapture(captureArea);
+    }
+
+}
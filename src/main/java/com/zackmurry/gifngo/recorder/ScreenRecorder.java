@@ -1,75 +1,88 @@
 package com.zackmurry.gifngo.recorder;
 
 import com.zackmurry.gifngo.models.Frame;
+import com.zackmurry.gifngo.models.ImageDimension;
+import lombok.Getter;
+import lombok.Setter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.awt.*;
-import java.util.ArrayList;
+import java.awt.image.BufferedImage;
+import java.util.function.LongConsumer;
 
 public class ScreenRecorder extends Thread {
 
     private static final Logger logger = LoggerFactory.getLogger(ScreenRecorder.class);
 
-    private final ArrayList<Frame> captures = new ArrayList<>();
-    private boolean recording;
+    private final FrameRingBuffer buffer;
+    private volatile boolean recording;
 
-    private static final int SCREEN_WIDTH = (int) Toolkit.getDefaultToolkit().getScreenSize().getWidth();
-    private static final int SCREEN_HEIGHT = (int) Toolkit.getDefaultToolkit().getScreenSize().getHeight();
+    // whether this thread was told to stop before the recording stopped because it wasn't needed anymore
+    @Getter
+    private volatile boolean retired;
+    private int captureCount;
 
-    private static final Rectangle CAPTURE_RECT = new Rectangle(SCREEN_WIDTH, SCREEN_HEIGHT);
-    private final int timeBetweenCapturesMs;
-    private int msOffset;
+    // whether the source ran out of frames, which stops the recording
+    @Getter
+    private volatile boolean exhausted;
 
-    private Robot robot;
+    private final FrameSource source;
+    private final FrameScheduler scheduler;
 
-    public ScreenRecorder(int msOffset, int timeBetweenCapturesMs) {
-        this.timeBetweenCapturesMs = timeBetweenCapturesMs;
-        this.msOffset = msOffset;
-        try {
-            robot = new Robot();
-        } catch (AWTException e) {
-            e.printStackTrace();
-        }
-    }
+    // if set, captures are shrunk to this size before they're put in the buffer, so full-size screenshots are never held
+    @Setter
+    private ImageDimension captureDimensions;
+
+    @Setter
+    private ResizeQuality captureResizeQuality = ResizeQuality.BOX;
+
+    // told how long this thread was busy with each frame, in nanoseconds. that's the capture plus the resize when
+    // captureDimensions is set, since both keep the thread from taking the next tick
+    @Setter
+    private LongConsumer frameTimeListener;
 
     /**
-     * assumes single-threaded if this constructor is called (records at the fps)
-     * @param framesPerSecond to record at
+     * @param source where frames are captured from. shared with the other recording threads
+     * @param scheduler hands out capture ticks to this thread and the other recording threads
      */
-    public ScreenRecorder(int framesPerSecond) {
-        this.timeBetweenCapturesMs = 1000 / framesPerSecond;
-        try {
-            robot = new Robot();
-        } catch (AWTException e) {
-            e.printStackTrace();
-        }
+    public ScreenRecorder(FrameRingBuffer buffer, FrameSource source, FrameScheduler scheduler) {
+        this.buffer = buffer;
+        this.source = source;
+        this.scheduler = scheduler;
     }
 
     public void run() {
-        long recordStartTime = System.currentTimeMillis();
-        if (msOffset > 0) {
-            try {
-                Thread.sleep(msOffset);
-            } catch (InterruptedException e) {
-                e.printStackTrace();
-            }
-        }
         logger.debug("Thread {} starting recording.", super.getName());
-        while (recording) {
+        FrameScheduler.Tick tick;
+        while (recording && (tick = scheduler.nextTick()) != null) {
+            // the buffer holds back the frames after this one until it knows what happened to it,
+            // so a tick that doesn't end up in the buffer is always reported as skipped
+            boolean offered = false;
             try {
-                long startTime = System.currentTimeMillis();
-                Frame capture = new Frame(robot.createScreenCapture(CAPTURE_RECT), (int) (System.currentTimeMillis() - recordStartTime));
-                captures.add(capture);
-                long delay = timeBetweenCapturesMs - (System.currentTimeMillis() - startTime);
-                if (delay > 0) {
-                    // todo maybe do this https://stackoverflow.com/questions/54394042/java-how-to-avoid-using-thread-sleep-in-a-loop
-                    Thread.sleep(delay);
-                } else if (delay < -5) {
-                    logger.warn("Failure to keep up with frame rate: skipped {} milliseconds.", -delay);
+                final long captureStart = System.nanoTime();
+                final int timeSinceStart = scheduler.millisSinceStart(captureStart);
+                BufferedImage image = source.nextFrame(tick.getSequence());
+                if (image == null) {
+                    logger.debug("Thread {} ran out of frames to capture.", super.getName());
+                    exhausted = true;
+                    break;
+                }
+                if (captureDimensions != null) {
+                    image = ImageResizer.resize(image, captureDimensions, captureResizeQuality);
+                }
+                if (frameTimeListener != null) {
+                    frameTimeListener.accept(System.nanoTime() - captureStart);
+                }
+                Frame capture = new Frame(image, timeSinceStart, tick.getSequence());
+                buffer.offer(capture);
+                offered = true;
+                captureCount++;
+            } catch (RuntimeException e) {
+                logger.error("Error capturing frame {}. Skipping it...", tick.getSequence(), e);
+            } finally {
+                if (!offered) {
+                    buffer.skip(tick.getSequence(), tick.getSequence() + 1);
                 }
-            } catch (InterruptedException e) {
-                e.printStackTrace();
             }
         }
     }
@@ -79,14 +92,26 @@ public class ScreenRecorder extends Thread {
         this.start();
     }
 
-    public ArrayList<Frame> stopRecording() {
+    /**
+     * stops this thread after its current capture, without waiting for it
+     */
+    public void retire() {
+        retired = true;
+        recording = false;
+    }
+
+    /**
+     * stops recording and waits for the last capture to be put in the buffer
+     * @return the number of frames captured by this thread
+     */
+    public int stopRecording() {
         recording = false;
         try {
             this.join();
         } catch (InterruptedException e) {
             e.printStackTrace();
         }
-        return captures;
+        return captureCount;
     }
 
 }
@@ -1,8 +1,10 @@
 package com.zackmurry.gifngo.recorder;
 
 import com.zackmurry.gifngo.Constants;
+import com.zackmurry.gifngo.models.CaptureRegion;
 import com.zackmurry.gifngo.models.Frame;
 import com.zackmurry.gifngo.converter.GifConverter;
+import com.zackmurry.gifngo.converter.algorithms.QuantizerType;
 import com.zackmurry.gifngo.models.ImageDimension;
 import lombok.Getter;
 import lombok.Setter;
@@ -10,11 +12,15 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.*;
-import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
 
 /**
  * class that orders ScreenRecorders to take screenshots and then delivers them to a GifConverter
@@ -30,11 +36,6 @@ public class ScreenRecorderManager {
     @Getter
     private int framesPerSecond = 24;
 
-    private int timeBetweenCapturesMs = (int) Math.round(1000d / framesPerSecond);
-
-    // the time that each individual thread should wait between captures
-    private int timeBetweenThreadCaptures;
-
     @Getter @Setter
     private double strictFps = -1;
 
@@ -53,15 +54,101 @@ public class ScreenRecorderManager {
     @Getter @Setter
     private ImageDimension outputDimensions = ImageDimension.fromString(Constants.DEFAULT_RESOLUTION);
 
+    // part of the screen to record, or null to record the whole primary screen
+    @Getter @Setter
+    private CaptureRegion captureRegion;
+
+    // where frames are captured from. if null, screenshots of the capture region are taken
+    @Getter @Setter
+    private FrameSource frameSource;
+
+    @Getter @Setter
+    private ResizeQuality resizeQuality = ResizeQuality.BOX;
+
+    @Getter @Setter
+    private int resizeThreads = 1;
+
+    // shrink each capture on the thread that took it, so that memory use depends on the output size instead of the screen size
+    @Getter @Setter
+    private boolean resizeAtCapture;
+
     @Getter @Setter
     private boolean waitForBuild;
 
-    private final ArrayList<ScreenRecorder> screenRecorders = new ArrayList<>();
+    // add and retire recording threads to keep up with the frame rate, instead of using threadCount threads
+    @Getter @Setter
+    private boolean adaptiveThreads;
+
+    // lowest frame rate to drop to when the recording can't keep up. 0 keeps the frame rate fixed
+    @Getter @Setter
+    private double minFramesPerSecond;
+
+    @Getter @Setter
+    private int encodingThreads = 1;
+
+    // number of saved recordings to build at once with waitForBuild
+    @Getter @Setter
+    private int buildJobs = 1;
+
+    @Getter @Setter
+    private boolean reusePalette;
+
+    @Getter @Setter
+    private double sceneChangeThreshold = 0.05;
+
+    @Getter @Setter
+    private boolean globalPalette;
+
+    @Getter @Setter
+    private QuantizerType quantizerType = QuantizerType.NEUQUANT;
+
+    @Getter @Setter
+    private boolean deltaEncoding;
+
+    @Getter @Setter
+    private boolean skipDuplicateFrames;
+
+    // max number of captured frames held in memory while waiting to be encoded
+    @Getter @Setter
+    private int queueCapacity = 32;
+
+    @Getter @Setter
+    private OverflowPolicy overflowPolicy = OverflowPolicy.BLOCK;
+
+    // threads can be added while recording by the adaptive thread controller
+    private final List<ScreenRecorder> screenRecorders = new CopyOnWriteArrayList<>();
     private long recordStartTime;
+    private FrameSource recordingSource;
+    private FrameScheduler scheduler;
+    private AdaptiveThreadController threadController; // null unless adaptiveThreads is set
+    private AdaptiveRateController rateController; // null unless minFramesPerSecond allows lowering the frame rate
+    private FrameRingBuffer frameBuffer;
+    private FrameConsumer frameConsumer;
+    private final EncodeService encodeService = new EncodeService(ENCODE_QUEUE_SIZE);
+
+    // where the current recording is going: a gif that's being built, or a folder in the captures folder if waitForBuild is set
+    private GifConverter gifConverter;
+    private ParallelResizer resizer;
+    private String outputPath;
+    private File captureFile;
+    private CaptureFile.Writer captureWriter;
     private final int threadCount;
 
     private static final File capturesFolder = new File("captures");
 
+    // number of stopped recordings that can wait to be built while another one is being built.
+    // each one holds its frames in memory, so recording can't start again until one of them is built
+    private static final int ENCODE_QUEUE_SIZE = 2;
+
+    // threads that read and decode saved frames ahead of the encoder when building gifs
+    private static final int PREFETCH_THREADS = 2;
+
+    // share of the heap that gifs being built at once can use between them
+    private static final double BUILD_MEMORY_FRACTION = 0.5;
+
+    // added to the names of captures whose gifs couldn't be built, so they're kept but not built again
+    private static final String FAILED_CAPTURE_SUFFIX = ".failed";
+
     public ScreenRecorderManager() {
         this(1);
     }
@@ -73,11 +160,6 @@ public class ScreenRecorderManager {
         }
         this.threadCount = threadCount;
         logger.debug("Set to record on {} threads.", threadCount);
-        this.timeBetweenThreadCaptures = timeBetweenCapturesMs * threadCount;
-    }
-
-    private void saveImageToCaptures(BufferedImage image, String fileName) throws IOException {
-        ImageIO.write(image, "jpeg", new File(fileName));
     }
 
     public void startRecording() {
@@ -85,20 +167,141 @@ public class ScreenRecorderManager {
             logger.error("Cannot start recording while already recording.");
             return;
         }
+        if (encodeService.isFull()) {
+            logger.error("Cannot start recording while {} stopped recordings are waiting to be built. Try again once one of them is done.", encodeService.getQueuedJobs());
+            return;
+        }
+
+        captureWriter = null;
+        frameBuffer = new FrameRingBuffer(queueCapacity, overflowPolicy);
+        final Consumer<Frame> sink = waitForBuild ? createCapturesFolderSink() : createGifSink();
+        if (sink == null) {
+            return;
+        }
+        frameConsumer = new FrameConsumer(frameBuffer, sink);
+        frameConsumer.start();
+
         logger.info("Recording...");
         recording = true;
 
         screenRecorders.clear();
 
-        for (int i = 0; i < threadCount; i++) {
-            int recordingOffset = i * timeBetweenCapturesMs;
-            screenRecorders.add(new ScreenRecorder(recordingOffset, timeBetweenThreadCaptures));
+        if (frameSource != null) {
+            recordingSource = frameSource;
+        } else {
+            final CaptureRegion region = captureRegion != null ? captureRegion : CaptureRegion.fullScreen();
+            logger.debug("Recording the region {}.", region);
+            recordingSource = new RobotFrameSource(region);
+        }
+        // the threads take turns capturing ticks from one timeline instead of each sleeping on its own
+        scheduler = new FrameScheduler(framesPerSecond);
+        scheduler.setSkipListener(frameBuffer::skip);
+        if (adaptiveThreads) {
+            threadController = new AdaptiveThreadController(scheduler, new AdaptiveThreadController.Workers() {
+                @Override
+                public int getActiveCount() {
+                    return (int) screenRecorders.stream().filter(recorder -> !recorder.isRetired()).count();
+                }
+
+                @Override
+                public void add() {
+                    final ScreenRecorder screenRecorder = createScreenRecorder();
+                    screenRecorders.add(screenRecorder);
+                    screenRecorder.startRecording();
+                }
+
+                @Override
+                public void retire() {
+                    screenRecorders.stream().filter(recorder -> !recorder.isRetired()).reduce((first, second) -> second).ifPresent(ScreenRecorder::retire);
+                }
+            }, Runtime.getRuntime().availableProcessors());
+        } else {
+            threadController = null;
+        }
+        final int maxStride = AdaptiveRateController.maxStrideFor(framesPerSecond, minFramesPerSecond);
+        rateController = maxStride > 1 ? new AdaptiveRateController(scheduler, frameBuffer, maxStride) : null;
+        // adaptive recording starts with one thread and adds more if it needs to
+        final int initialThreads = adaptiveThreads ? 1 : threadCount;
+        for (int i = 0; i < initialThreads; i++) {
+            screenRecorders.add(createScreenRecorder());
         }
         // starting after construction so that they all start at roughly the same time
+        scheduler.start();
         screenRecorders.forEach(ScreenRecorder::startRecording);
+        if (threadController != null) {
+            threadController.start();
+        }
+        if (rateController != null) {
+            rateController.start();
+        }
         recordStartTime = System.currentTimeMillis();
     }
 
+    private ScreenRecorder createScreenRecorder() {
+        final ScreenRecorder screenRecorder = new ScreenRecorder(frameBuffer, recordingSource, scheduler);
+        if (resizeAtCapture) {
+            screenRecorder.setCaptureDimensions(outputDimensions);
+            screenRecorder.setCaptureResizeQuality(resizeQuality);
+        }
+        if (threadController != null) {
+            screenRecorder.setFrameTimeListener(threadController::recordFrameTime);
+        }
+        return screenRecorder;
+    }
+
+    /**
+     * starts a gif that frames are resized and appended to as soon as they are taken out of the buffer.
+     * frames are resized on the resize threads while earlier frames are being encoded
+     * @return the sink for the FrameConsumer, or null if the gif couldn't be started
+     */
+    private Consumer<Frame> createGifSink() {
+        outputPath = generateOutputFilePath();
+        gifConverter = new GifConverter();
+        try {
+            gifConverter.setOutputFile(outputPath);
+        } catch (IOException e) {
+            logger.error("Error constructing output stream to build gif to:", e);
+            return null;
+        }
+        configureGifConverter(gifConverter);
+        if (!gifConverter.begin()) {
+            logger.error("Error starting gif.");
+            return null;
+        }
+        resizer = new ParallelResizer(outputDimensions, resizeQuality, resizeThreads, gifConverter::append);
+        return resizer::submit;
+    }
+
+    /**
+     * creates a capture file in the captures folder that frames are saved to as soon as they are taken out of the buffer
+     * @return the sink for the FrameConsumer, or null if the file couldn't be created
+     */
+    private Consumer<Frame> createCapturesFolderSink() {
+        if (!capturesFolder.exists()) {
+            if (!capturesFolder.mkdir()) {
+                logger.error("Failed to create captures folder. Aborting...");
+                System.exit(1);
+            }
+        }
+
+        captureFile = new File(capturesFolder, System.currentTimeMillis() + CaptureFile.EXTENSION);
+        try {
+            captureWriter = new CaptureFile.Writer(captureFile);
+        } catch (IOException e) {
+            logger.error("Failed to create file for gif frames. Gif save failed.", e);
+            return null;
+        }
+        logger.debug("Saving frames to {}...", captureFile.getAbsolutePath());
+        final CaptureFile.Writer writer = captureWriter;
+        return frame -> {
+            try {
+                writer.write(frame);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        };
+    }
+
     public void stopRecording() {
         if (!recording) {
             logger.error("ERROR: Cannot stop recording if not currently recording.");
@@ -107,64 +310,135 @@ public class ScreenRecorderManager {
         logger.info("Stopped recording.");
         recording = false;
 
-        final List<List<Frame>> separatedCaptures = new ArrayList<>();
+        if (threadController != null) {
+            threadController.stop();
+        }
+        if (rateController != null) {
+            rateController.stop();
+        }
+        scheduler.stop();
+        int framesCaptured = 0;
         for (ScreenRecorder recorder : screenRecorders) {
-            separatedCaptures.add(recorder.stopRecording());
+            framesCaptured += recorder.stopRecording();
+        }
+        final double secondsRecorded = (System.currentTimeMillis() - recordStartTime) / 1000d;
+        scheduler.logJitter();
+        if (recordingSource != frameSource) {
+            // sources that were given to the manager are closed by whoever gave them
+            recordingSource.close();
         }
 
-        final ArrayList<Frame> captures = new ArrayList<>();
-        for (int i = 0; i < separatedCaptures.get(screenRecorders.size() - 1).size(); i++) {
-            for (List<Frame> caps : separatedCaptures) {
-                if (i < caps.size()) {
-                    captures.add(caps.get(i));
+        frameBuffer.close();
+        logger.info("Processing {} captures...", frameConsumer.getConsumedFrames() + frameBuffer.getDepth() + frameBuffer.getWaitingFrames());
+
+        // the rest of the recording is finished in the background, so its state is handed over before the next recording replaces it
+        final FrameRingBuffer recordedBuffer = frameBuffer;
+        final FrameConsumer recordedConsumer = frameConsumer;
+        final FrameScheduler recordedScheduler = scheduler;
+        final int recordedFrames = framesCaptured;
+        final CaptureFile.Writer recordedWriter = captureWriter;
+        final File recordedCaptureFile = captureFile;
+        final ParallelResizer recordedResizer = resizer;
+        final GifConverter recordedGif = gifConverter;
+        final String recordedPath = outputPath;
+        // the settings can be changed before the job runs, so it gets the ones this recording used
+        final int recordedFramesPerSecond = framesPerSecond;
+        final double recordedStrictFps = strictFps;
+        encodeService.submit(recordedWriter != null ? recordedCaptureFile.getName() : recordedPath, () -> {
+            recordedConsumer.finish();
+            logger.debug("Frame queue: capacity {}, high-water mark {}, {} frames dropped, {} frames spilled to disk.",
+                    recordedBuffer.getCapacity(), recordedBuffer.getHighWaterMark(), recordedBuffer.getDroppedFrames(), recordedBuffer.getSpilledFrames());
+            if (recordedBuffer.getDroppedFrames() > 0) {
+                logger.warn("Dropped {} frames because the encoder couldn't keep up.", recordedBuffer.getDroppedFrames());
+            }
+
+            final double realFramesPerSecond = recordedFrames / secondsRecorded;
+            logger.debug("Recorded for {} seconds at {} frames per second. Recorded at {} real frames per second.", secondsRecorded, recordedFramesPerSecond, realFramesPerSecond);
+
+            // frames left out on purpose to keep up aren't held against the frame rate
+            final double targetFramesPerSecond = recordedFramesPerSecond - recordedScheduler.getDecimatedTicks() / secondsRecorded;
+            final double absStrictFps = Math.abs(recordedStrictFps);
+            boolean failedStrictFps = false;
+            if (recordedStrictFps != 0 && (realFramesPerSecond - absStrictFps > targetFramesPerSecond || realFramesPerSecond + absStrictFps < targetFramesPerSecond)) {
+                if (recordedStrictFps > 0) {
+                    logger.error("Recording failed: expected {} +/- {} frames per second, but got {} frames per second.", targetFramesPerSecond, absStrictFps, realFramesPerSecond);
+                    failedStrictFps = true;
+                } else {
+                    logger.warn("Frames per second is more than {} away from the desired frame rate ({}). Frame rate: {}. Continuing...", absStrictFps, targetFramesPerSecond, realFramesPerSecond);
                 }
             }
-        }
 
-        final double secondsRecorded = (System.currentTimeMillis() - recordStartTime) / 1000d;
-        final double realFramesPerSecond = captures.size() / secondsRecorded;
-        logger.debug("Recorded for {} seconds at {} frames per second. Recorded at {} real frames per second.", secondsRecorded, framesPerSecond, realFramesPerSecond);
+            final boolean failedOutput = recordedConsumer.getFailure() != null;
+            if (failedOutput) {
+                logger.error("Recording failed: couldn't save its frames ({}).", recordedConsumer.getFailure().getMessage());
+            }
 
-        final double absStrictFps = Math.abs(strictFps);
-        if (strictFps != 0 && (realFramesPerSecond - absStrictFps > framesPerSecond || realFramesPerSecond + absStrictFps < framesPerSecond)) {
-            if (strictFps > 0) {
-                logger.error("Recording failed: expected {} +/- {} frames per second, but got {} frames per second.", framesPerSecond, absStrictFps, realFramesPerSecond);
+            if (recordedWriter != null) {
+                try {
+                    recordedWriter.close();
+                } catch (IOException e) {
+                    logger.warn("Error closing capture file {}.", recordedCaptureFile.getAbsolutePath(), e);
+                }
+                if (failedStrictFps || failedOutput) {
+                    if (!recordedCaptureFile.delete()) {
+                        logger.warn("Error deleting capture file {}. It is recommended to delete this file.", recordedCaptureFile.getAbsolutePath());
+                    }
+                    return;
+                }
+                logger.info("Gif files saved.");
                 return;
-            } else {
-                logger.warn("Frames per second is more than {} away from the desired frame rate ({}). Frame rate: {}. Continuing...", absStrictFps, framesPerSecond, realFramesPerSecond);
             }
-        }
 
-        if (waitForBuild) {
-            // add images to folder in captures folder
-            addGifImagesToCapturesFolder(String.valueOf(System.currentTimeMillis()), captures);
-            return;
+            recordedResizer.close();
+            final boolean builtSuccessfully = recordedGif.finish();
+            if (failedStrictFps || failedOutput) {
+                if (!new File(recordedPath).delete()) {
+                    logger.warn("Error deleting failed recording at {}.", recordedPath);
+                }
+                return;
+            }
+            if (builtSuccessfully) {
+                logger.info("GIF successfully created. Saved to {}.", recordedPath);
+            } else {
+                logger.warn("Problem occurred while building gif. It could possibly still work; location: {}", recordedPath);
+            }
+        });
+
+        if (singleRecording && recordedWriter == null) {
+            // the program ends through shutdown() once the gif is built. that waits, so it's done on its own thread
+            // instead of the hotkey thread
+            final Thread exitThread = new Thread(() -> {
+                shutdown();
+                System.exit(0);
+            }, "single-recording-exit");
+            exitThread.start();
         }
+    }
 
-        captures.forEach(capture -> capture.setImage(ImageResizer.resize(capture.getImage(), outputDimensions)));
-
-        logger.info("Building GIF...");
-        
-        String outputPath = generateOutputFilePath();
-        
-        GifConverter gifConverter;
-        try {
-            gifConverter = new GifConverter(captures, outputPath);
-        } catch (IOException e) {
-            e.printStackTrace();
-            return;
-        }
-        logger.info("Processing {} captures...", captures.size());
-        gifConverter.process();
-        logger.info("GIF successfully created. Saved to {}.", outputPath);
+    /**
+     * waits for every stopped recording to finish building (or saving, with waitForBuild) and stops the encoding thread.
+     * no recordings can be stopped afterwards
+     */
+    public void shutdown() {
+        encodeService.shutdown();
+    }
 
-        if (singleRecording) {
-            System.exit(0);
-        }
+    private void configureGifConverter(GifConverter gifConverter) {
+        gifConverter.setEncodingThreads(encodingThreads);
+        gifConverter.setReusePalette(reusePalette);
+        gifConverter.setSceneChangeThreshold(sceneChangeThreshold);
+        gifConverter.setUseGlobalColorTable(globalPalette);
+        gifConverter.setQuantizerType(quantizerType);
+        gifConverter.setDeltaEncoding(deltaEncoding);
+        gifConverter.setSkipDuplicateFrames(skipDuplicateFrames);
     }
 
     private String generateOutputFilePath() {
-        final String gifFileName = (outputFileName != null ? outputFileName : System.currentTimeMillis()) + ".gif";
+        return generateOutputFilePath(outputFileName != null ? outputFileName : String.valueOf(System.currentTimeMillis()));
+    }
+
+    private String generateOutputFilePath(String name) {
+        final String gifFileName = name + ".gif";
         if (saveToDownloadsFolder) {
             return DOWNLOADS_FOLDER_PATH + File.separator + gifFileName;
         } else {
@@ -172,40 +446,6 @@ public class ScreenRecorderManager {
         }
     }
 
-    private void addGifImagesToCapturesFolder(String folderName, List<Frame> images) {
-        if (!capturesFolder.exists()) {
-            if (!capturesFolder.mkdir()) {
-                logger.error("Failed to create captures folder. Aborting...");
-                System.exit(1);
-            }
-        }
-
-        final File gifFolder = new File(capturesFolder.getPath() + "\\" + folderName);
-        if (!gifFolder.mkdir()) {
-            logger.error("Failed to create folder for gif images. Gif save failed.");
-            return;
-        }
-        logger.debug("Saving {} image{} to {}...", images.size(), images.size() != 1 ? "s" : "", gifFolder.getAbsolutePath());
-
-        try {
-            for (Frame image : images) {
-                boolean wrote = ImageIO.write(image.getImage(), "jpeg", new File(gifFolder.getPath() + "\\" + image.getTimeSinceStart() + ".jpeg"));
-                if (!wrote) {
-                    logger.warn("Wrote is false");
-                }
-            }
-        } catch (IOException e) {
-            logger.error("Error saving images to disk. Deleting the folder for that gif and aborting...");
-            if (gifFolder.delete()) {
-                logger.debug("Successfully deleted gif folder.");
-            } else {
-                logger.warn("Error deleting folder {}. This may cause unexpected behavior after starting the program again. It is recommended to delete this folder.", gifFolder);
-            }
-            System.exit(1);
-        }
-        logger.info("Gif files saved.");
-    }
-
     public void toggleRecording() {
         if (recording) {
             stopRecording();
@@ -217,14 +457,19 @@ public class ScreenRecorderManager {
     public boolean isRecording() {
         return recording;
     }
+
+    /**
+     * @return whether the frame source has run out of frames for every recording thread, like at the end of a replay
+     */
+    public boolean isSourceExhausted() {
+        return recording && screenRecorders.stream().filter(recorder -> !recorder.isRetired()).allMatch(ScreenRecorder::isExhausted);
+    }
     
     public void setFramesPerSecond(int fps) {
         if (recording) {
             logger.warn("Updating frames per second while recording will produce unexpected behavior. The GIF encoder will only receive the frames per second at the last frame, meaning that all of the other frames will be played at the final framerate.");
         }
         framesPerSecond = fps;
-        timeBetweenCapturesMs = 1000 / fps;
-        timeBetweenThreadCaptures = timeBetweenCapturesMs * threadCount;
     }
 
     /**
@@ -252,70 +497,189 @@ public class ScreenRecorderManager {
             return;
         }
 
+        // recordings that were just stopped may still be saving
+        encodeService.awaitIdle();
+
         if (!capturesFolder.exists()) {
             logger.info("No gifs to build.");
             return;
         }
 
 
-        final File[] gifFolders = capturesFolder.listFiles();
+        final File[] captures = capturesFolder.listFiles(file -> !file.getName().endsWith(FAILED_CAPTURE_SUFFIX));
 
-        if (gifFolders == null) {
-            logger.warn("No folders for gifs found. Not building any gifs.");
+        if (captures == null) {
+            logger.warn("No captures for gifs found. Not building any gifs.");
             return;
         }
 
-        // todo this might create an OutOfMemoryError. this could be changed to get one image at a time and pass them to the GifConverter, which would avoid using a ton of memory
-        for (File gifFolder : gifFolders) {
-            final File[] imageFiles = gifFolder.listFiles();
-
-            if (imageFiles == null) {
-                logger.warn("A gif folder is empty. Skipping...");
-                if (!deleteFileDirectory(gifFolder)) {
-                    logger.warn("Failed to delete folder for a gif. Location: {}", gifFolder.getAbsolutePath());
-                }
-                continue;
-            }
+        final BuildScheduler buildScheduler = new BuildScheduler(buildJobs, (long) (Runtime.getRuntime().maxMemory() * BUILD_MEMORY_FRACTION));
+        for (File capture : captures) {
+            // with several gifs to build at once, they're named after their recordings so they don't write to the same file
+            final String filePath = captures.length > 1 ? generateOutputFilePath(captureName(capture)) : generateOutputFilePath();
+            buildScheduler.submit(capture.getName(), estimateBuildMemory(capture), progress -> buildGif(capture, filePath, progress));
+        }
+        final int failures = buildScheduler.finish();
+        if (failures > 0) {
+            logger.warn("{} of {} gifs failed to build. Their frames were kept with names ending in {}.", failures, captures.length, FAILED_CAPTURE_SUFFIX);
+        }
+        logger.info("All gifs finished building.");
+    }
 
-            final ArrayList<Frame> frames = new ArrayList<>();
-            logger.debug("Processing {} images...", imageFiles.length);
-            for (File imageFile : imageFiles) {
-                BufferedImage image;
-                int imageName;
+    /**
+     * builds a gif from a capture file or folder, then deletes the capture. if the gif couldn't be built, the capture is kept
+     * and renamed so that it isn't built again
+     * @return whether the gif was built successfully
+     */
+    private boolean buildGif(File capture, String filePath, BuildScheduler.Progress progress) throws IOException {
+        boolean builtSuccessfully;
+        try {
+            final GifConverter gifConverter = new GifConverter();
+            gifConverter.setOutputFile(filePath);
+            configureGifConverter(gifConverter);
+            builtSuccessfully = gifConverter.begin();
+            if (builtSuccessfully) {
+                // frames are read one at a time and resized while earlier ones are being encoded, so the whole gif is never in memory
+                final ParallelResizer captureResizer = new ParallelResizer(outputDimensions, resizeQuality, resizeThreads, frame -> {
+                    gifConverter.append(frame);
+                    progress.frameBuilt();
+                });
                 try {
-                    image = ImageIO.read(imageFile);
-                    // substring file name to remove .jpeg at the end
-                    String fileName = imageFile.getName().substring(0, imageFile.getName().length() - 5);
-                    imageName = Integer.parseInt(fileName);
-                } catch (IOException | NumberFormatException e) {
-                    logger.error("Exception occurred when reading an image of a gif. Skipping image...");
-                    continue;
+                    if (capture.isDirectory()) {
+                        // folders of images are saved by older versions
+                        readCapturesFolder(capture, progress, captureResizer::submit);
+                    } else {
+                        readCaptureFile(capture, progress, captureResizer::submit);
+                    }
+                } finally {
+                    captureResizer.close();
+                    builtSuccessfully = gifConverter.finish();
                 }
-                frames.add(new Frame(image, imageName));
             }
+        } catch (IOException | RuntimeException e) {
+            keepFailedCapture(capture);
+            // the capture couldn't be read, so whatever was written isn't worth keeping
+            if (new File(filePath).exists() && !new File(filePath).delete()) {
+                logger.warn("Error deleting failed gif at {}.", filePath);
+            }
+            throw e;
+        }
 
-            frames.forEach(capture -> capture.setImage(ImageResizer.resize(capture.getImage(), outputDimensions)));
-            frames.sort(Comparator.comparingInt(Frame::getTimeSinceStart));
+        if (!builtSuccessfully) {
+            logger.warn("Problem occurred while building gif. It could possibly still work; location: {}", filePath);
+            keepFailedCapture(capture);
+            return false;
+        }
+        logger.info("Successfully created a gif located at {}", filePath);
+
+        // delete the frames of the gif
+        final boolean deleted = capture.isDirectory() ? deleteFileDirectory(capture) : capture.delete();
+        if (!deleted) {
+            logger.warn("Could not delete {}, which contains the frames for a gif. You should delete this manually in order to avoid errors in the future, but this could fix itself after another build.", capture.getAbsolutePath());
+        }
+        return true;
+    }
 
-            final String filePath = generateOutputFilePath();
+    private void keepFailedCapture(File capture) {
+        final File failed = new File(capture.getParentFile(), capture.getName() + FAILED_CAPTURE_SUFFIX);
+        if (!capture.renameTo(failed)) {
+            logger.warn("Could not rename {}, so it will be built again next time.", capture.getAbsolutePath());
+        }
+    }
+
+    /**
+     * @return the name of a capture file or folder without its extension, which is the time the recording started
+     */
+    private static String captureName(File capture) {
+        final String name = capture.getName();
+        return name.endsWith(CaptureFile.EXTENSION) ? name.substring(0, name.length() - CaptureFile.EXTENSION.length()) : name;
+    }
+
+    /**
+     * estimates the most memory that building a gif from a capture uses at once: the frames being loaded and resized
+     * at the size they were captured at, and the frames being encoded at the output size
+     */
+    private long estimateBuildMemory(File capture) {
+        final ImageDimension captureDimensions = capture.isDirectory() ? readFolderImageDimensions(capture) : CaptureFile.readFrameDimensions(capture);
+        final long outputFrameBytes = (long) outputDimensions.getWidth() * outputDimensions.getHeight() * 3;
+        final long captureFrameBytes = captureDimensions != null ? (long) captureDimensions.getWidth() * captureDimensions.getHeight() * 3 : outputFrameBytes;
+        final long capturedFramesInMemory = PREFETCH_THREADS * 2 + Math.max(1, resizeThreads * 2) + 1;
+        // an encoded frame holds its pixels, their palette indices, and its compressed data
+        final long encodedFramesInMemory = Math.max(2, encodingThreads * 2) * 3L;
+        return capturedFramesInMemory * captureFrameBytes + encodedFramesInMemory * outputFrameBytes;
+    }
+
+    /**
+     * @return the size of the first image in a captures folder, read from its header, or null if it can't be read
+     */
+    private static ImageDimension readFolderImageDimensions(File folder) {
+        final File[] imageFiles = folder.listFiles();
+        if (imageFiles == null || imageFiles.length == 0) {
+            return null;
+        }
+        try (ImageInputStream input = ImageIO.createImageInputStream(imageFiles[0])) {
+            final Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (input == null || !readers.hasNext()) {
+                return null;
+            }
+            final ImageReader reader = readers.next();
             try {
-                boolean builtSuccessfully = new GifConverter(frames, filePath).process();
-                if (!builtSuccessfully) {
-                    logger.warn("Problem occurred while building gif. It could possibly still work; location: {}", filePath);
-                } else {
-                    logger.info("Successfully created a gif located at {}", filePath);
-                }
-            } catch (IOException e) {
-                logger.error("Error constructing output stream to build gif to:", e);
+                reader.setInput(input);
+                return new ImageDimension(reader.getWidth(0), reader.getHeight(0));
+            } finally {
+                reader.dispose();
             }
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * reads the frames of a capture file in the order they were saved
+     */
+    private void readCaptureFile(File file, BuildScheduler.Progress progress, Consumer<Frame> sink) throws IOException {
+        try (CaptureFile.Reader reader = new CaptureFile.Reader(file); FramePrefetcher prefetcher = new FramePrefetcher(PREFETCH_THREADS)) {
+            logger.debug("Processing {} frames...", reader.getFrameCount());
+            progress.setTotalFrames(reader.getFrameCount());
+            prefetcher.load(reader.getFrameCount(), reader::read, sink);
+        }
+    }
 
-            // delete folder for gif
-            if (!deleteFileDirectory(gifFolder)) {
-                logger.warn("Could not delete folder {}, which contains the images for a gif. You should delete this manually in order to avoid errors in the future, but this could fix itself after another build.", gifFolder.getAbsolutePath());
+    /**
+     * reads the images of a captures folder, which are named after their time since the start of the recording
+     */
+    private void readCapturesFolder(File folder, BuildScheduler.Progress progress, Consumer<Frame> sink) {
+        final File[] imageFiles = folder.listFiles();
+        if (imageFiles == null) {
+            logger.warn("A gif folder is empty. Skipping...");
+            return;
+        }
+
+        // images are named after their time since the start of the recording, which is the order they're encoded in
+        final TreeMap<Integer, File> imageFilesByTime = new TreeMap<>();
+        for (File imageFile : imageFiles) {
+            try {
+                // substring file name to remove .jpeg at the end
+                String fileName = imageFile.getName().substring(0, imageFile.getName().length() - 5);
+                imageFilesByTime.put(Integer.parseInt(fileName), imageFile);
+            } catch (NumberFormatException | StringIndexOutOfBoundsException e) {
+                logger.error("Exception occurred when reading an image of a gif. Skipping image...");
             }
-            logger.debug("Successfully built gif to {}", filePath);
         }
-        logger.info("All gifs finished building.");
+
+        logger.debug("Processing {} images...", imageFilesByTime.size());
+        progress.setTotalFrames(imageFilesByTime.size());
+        final List<Map.Entry<Integer, File>> sortedImageFiles = new ArrayList<>(imageFilesByTime.entrySet());
+        try (FramePrefetcher prefetcher = new FramePrefetcher(PREFETCH_THREADS)) {
+            prefetcher.load(sortedImageFiles.size(), index -> {
+                final Map.Entry<Integer, File> imageFile = sortedImageFiles.get(index);
+                final BufferedImage image = ImageIO.read(imageFile.getValue());
+                if (image == null) {
+                    throw new IOException("Unsupported image format: " + imageFile.getValue().getAbsolutePath());
+                }
+                return new Frame(image, imageFile.getKey());
+            }, sink);
+        }
     }
-    
+
 }
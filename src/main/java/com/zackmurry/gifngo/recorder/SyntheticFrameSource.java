@@ -0,0 +1,77 @@
+package com.zackmurry.gifngo.recorder;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Random;
+
+/**
+ * generates screen-like frames: a window with lines of text and a line near the bottom that's typed out a word every
+ * few frames, with a cursor blinking after the last typed word. the frames only depend on their sequence number, so every run produces the same frames, which makes
+ * this useful for benchmarks and load tests on machines without a display
+ */
+public class SyntheticFrameSource implements FrameSource {
+
+    private static final Color[] TEXT_COLORS = {
+            new Color(204, 120, 50), new Color(169, 183, 198), new Color(106, 135, 89), new Color(152, 118, 170)
+    };
+
+    private final int width;
+    private final int height;
+    private final int lineHeight;
+
+    // drawn once, then copied into every frame
+    private final int[] background;
+
+    public SyntheticFrameSource(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.lineHeight = Math.max(4, height / 60);
+        final BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        final Graphics2D g = image.createGraphics();
+        final Random random = new Random(42);
+        g.setColor(new Color(30, 30, 30));
+        g.fillRect(0, 0, width, height);
+        g.setColor(new Color(60, 63, 65));
+        g.fillRect(0, 0, width, height / 20);
+        g.setColor(new Color(43, 43, 43));
+        g.fillRect(0, height / 20, width / 6, height);
+        for (int y = height / 20 + lineHeight; y < height * 3 / 4; y += lineHeight * 3 / 2) {
+            int x = width / 6 + lineHeight * 2;
+            final int words = 2 + random.nextInt(8);
+            for (int w = 0; w < words && x < width; w++) {
+                final int wordWidth = lineHeight * (2 + random.nextInt(6));
+                g.setColor(TEXT_COLORS[random.nextInt(TEXT_COLORS.length)]);
+                g.fillRect(x, y, wordWidth, lineHeight);
+                x += wordWidth + lineHeight;
+            }
+        }
+        g.dispose();
+        background = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+    }
+
+    @Override
+    public BufferedImage nextFrame(long sequence) {
+        final BufferedImage frame = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        System.arraycopy(background, 0, ((DataBufferInt) frame.getRaster().getDataBuffer()).getData(), 0, background.length);
+        final Graphics2D g = frame.createGraphics();
+        // a word is typed every few frames on a line near the bottom, wrapping around when the line is full
+        final int lineY = height * 3 / 4 + lineHeight * 2;
+        final int lineStart = width / 6 + lineHeight * 2;
+        final int wordWidth = lineHeight * 3;
+        final int wordsPerLine = Math.max(1, (width - lineStart) / (wordWidth + lineHeight));
+        final int words = (int) ((sequence / 4) % (wordsPerLine + 1));
+        for (int w = 0; w < words; w++) {
+            g.setColor(TEXT_COLORS[w % TEXT_COLORS.length]);
+            g.fillRect(lineStart + w * (wordWidth + lineHeight), lineY, wordWidth, lineHeight);
+        }
+        // the cursor blinks after the last word
+        if (sequence % 10 < 5) {
+            g.setColor(Color.WHITE);
+            g.fillRect(lineStart + words * (wordWidth + lineHeight), lineY, Math.max(1, lineHeight / 4), lineHeight);
+        }
+        g.dispose();
+        return frame;
+    }
+
+}
@@ -0,0 +1,28 @@
+package com.zackmurry.gifngo.converter;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TestColorIndexCache {
+
+    @Test
+    public void testColorsThatOnlyDifferInRed() {
+        final ColorIndexCache cache = new ColorIndexCache();
+        for (int red = 0; red < 256; red++) {
+            cache.put(1, red << 16 | 0x2040, red);
+        }
+        int hits = 0;
+        for (int red = 0; red < 256; red++) {
+            final int index = cache.get(1, red << 16 | 0x2040);
+            if (index >= 0) {
+                assertEquals(red, index, "A cached color should map to the index it was cached with.");
+                hits++;
+            }
+        }
+        assertTrue(hits > 240, "Colors that only differ in red shouldn't evict each other.");
+        assertEquals(-1, cache.get(2, 0x2040), "Colors cached for one palette shouldn't be found for another.");
+    }
+
+}
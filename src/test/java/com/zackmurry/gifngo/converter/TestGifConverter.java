@@ -0,0 +1,304 @@
+package com.zackmurry.gifngo.converter;
+
+import com.zackmurry.gifngo.converter.algorithms.QuantizerType;
+import com.zackmurry.gifngo.models.Frame;
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.metadata.IIOMetadataNode;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TestGifConverter {
+
+    private static final int WIDTH = 160;
+    private static final int HEIGHT = 90;
+
+    /**
+     * creates frames with a gradient background and a box moving across it.
+     * the background has more than 256 colors, so the frames have to be quantized
+     */
+    private static List<Frame> createFrames(int count) {
+        final List<Frame> frames = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_3BYTE_BGR);
+            Graphics2D g = image.createGraphics();
+            g.setPaint(new GradientPaint(0, 0, Color.BLUE, WIDTH, HEIGHT, Color.ORANGE));
+            g.fillRect(0, 0, WIDTH, HEIGHT);
+            g.setPaint(new GradientPaint(0, 0, new Color(0, 255, 0, 0), 0, HEIGHT, new Color(0, 255, 0, 96)));
+            g.fillRect(0, 0, WIDTH, HEIGHT);
+            g.setColor(Color.WHITE);
+            g.fillRect(i * 7 % WIDTH, 20, 30, 30);
+            g.dispose();
+            frames.add(new Frame(image, i * 55));
+        }
+        return frames;
+    }
+
+    private static byte[] encode(GifConverter converter) {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        converter.setOutputStream(out);
+        assertTrue(converter.process(), "GifConverter should process the frames successfully.");
+        return out.toByteArray();
+    }
+
+    /**
+     * decodes a gif with ImageIO's GIF reader
+     * @return the number of frames in the gif
+     */
+    private static int readFrameCount(byte[] gif) throws IOException {
+        final ImageReader reader = ImageIO.getImageReadersByFormatName("gif").next();
+        try (ImageInputStream in = ImageIO.createImageInputStream(new ByteArrayInputStream(gif))) {
+            reader.setInput(in);
+            final int frameCount = reader.getNumImages(true);
+            for (int i = 0; i < frameCount; i++) {
+                reader.read(i);
+            }
+            return frameCount;
+        } finally {
+            reader.dispose();
+        }
+    }
+
+    @Test
+    public void testParallelEncodingMatchesSerial() {
+        final List<Frame> frames = createFrames(12);
+
+        final byte[] serial = encode(new GifConverter(frames));
+
+        final GifConverter parallelConverter = new GifConverter(frames);
+        parallelConverter.setEncodingThreads(4);
+        final byte[] parallel = encode(parallelConverter);
+
+        assertArrayEquals(serial, parallel, "Encoding on multiple threads should produce the same bytes as encoding on one.");
+    }
+
+    @Test
+    public void testStreamingMatchesProcess() {
+        final List<Frame> frames = createFrames(6);
+        final byte[] processed = encode(new GifConverter(frames));
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final GifConverter streamingConverter = new GifConverter();
+        streamingConverter.setOutputStream(out);
+        streamingConverter.setEncodingThreads(2);
+        assertTrue(streamingConverter.begin(), "GifConverter should begin a streamed GIF successfully.");
+        for (Frame frame : frames) {
+            assertTrue(streamingConverter.append(frame), "GifConverter should accept appended frames.");
+        }
+        assertTrue(streamingConverter.finish(), "GifConverter should finish a streamed GIF successfully.");
+
+        assertArrayEquals(processed, out.toByteArray(), "Streaming frames in should produce the same bytes as processing a list of them.");
+        assertFalse(streamingConverter.append(frames.get(0)), "GifConverter should reject frames after finishing.");
+    }
+
+    @Test
+    public void testReusePalette() throws IOException {
+        final List<Frame> frames = createFrames(10);
+        final byte[] withoutReuse = encode(new GifConverter(frames));
+
+        final GifConverter serialConverter = new GifConverter(frames);
+        serialConverter.setReusePalette(true);
+        final byte[] serial = encode(serialConverter);
+
+        final GifConverter parallelConverter = new GifConverter(frames);
+        parallelConverter.setReusePalette(true);
+        parallelConverter.setEncodingThreads(3);
+        final byte[] parallel = encode(parallelConverter);
+
+        assertArrayEquals(serial, parallel, "Reusing palettes on multiple threads should produce the same bytes as on one.");
+        assertEquals(frames.size(), readFrameCount(serial), "A GIF that reuses palettes should be readable.");
+
+        // with a threshold of 1, every frame reuses the first palette, which is the global color table
+        final GifConverter singlePaletteConverter = new GifConverter(frames);
+        singlePaletteConverter.setReusePalette(true);
+        singlePaletteConverter.setSceneChangeThreshold(1);
+        final byte[] singlePalette = encode(singlePaletteConverter);
+        assertEquals(frames.size(), readFrameCount(singlePalette));
+        assertTrue(singlePalette.length < withoutReuse.length - 768 * (frames.size() - 2), "Frames that reuse the global color table shouldn't have their own.");
+    }
+
+    @Test
+    public void testDeltaEncoding() throws IOException {
+        final List<Frame> frames = createFrames(10);
+        final byte[] full = encode(new GifConverter(frames));
+
+        final GifConverter deltaConverter = new GifConverter(frames);
+        deltaConverter.setDeltaEncoding(true);
+        final byte[] delta = encode(deltaConverter);
+
+        final GifConverter parallelConverter = new GifConverter(frames);
+        parallelConverter.setDeltaEncoding(true);
+        parallelConverter.setEncodingThreads(4);
+        assertArrayEquals(delta, encode(parallelConverter), "Delta encoding on multiple threads should produce the same bytes as on one.");
+
+        assertTrue(delta.length < full.length / 2, "Only drawing the moving box should make the GIF much smaller.");
+
+        // the last frame, drawn over the frames before it, should look like the last frame drawn in full
+        final ImageReader reader = ImageIO.getImageReadersByFormatName("gif").next();
+        try (ImageInputStream in = ImageIO.createImageInputStream(new ByteArrayInputStream(delta))) {
+            reader.setInput(in);
+            final BufferedImage canvas = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+            final Graphics2D g = canvas.createGraphics();
+            for (int i = 0; i < frames.size(); i++) {
+                final IIOMetadataNode root = (IIOMetadataNode) reader.getImageMetadata(i).getAsTree("javax_imageio_gif_image_1.0");
+                final IIOMetadataNode descriptor = (IIOMetadataNode) root.getElementsByTagName("ImageDescriptor").item(0);
+                g.drawImage(reader.read(i), Integer.parseInt(descriptor.getAttribute("imageLeftPosition")), Integer.parseInt(descriptor.getAttribute("imageTopPosition")), null);
+            }
+            g.dispose();
+            final BufferedImage expected = frames.get(frames.size() - 1).getImage();
+            assertEquals(new Color(expected.getRGB(5, 5)).getRed(), new Color(canvas.getRGB(5, 5)).getRed(), 24, "The background should still show under delta frames.");
+            assertEquals(Color.WHITE.getRGB(), canvas.getRGB(9 * 7 + 15, 35) | 0xff000000, "The moving box should be drawn where it is in the last frame.");
+        } finally {
+            reader.dispose();
+        }
+    }
+
+    @Test
+    public void testGlobalColorTable() throws IOException {
+        final List<Frame> frames = createFrames(10);
+        final byte[] local = encode(new GifConverter(frames));
+
+        final GifConverter serialConverter = new GifConverter(frames);
+        serialConverter.setUseGlobalColorTable(true);
+        final byte[] serial = encode(serialConverter);
+
+        final GifConverter parallelConverter = new GifConverter(frames);
+        parallelConverter.setUseGlobalColorTable(true);
+        parallelConverter.setEncodingThreads(4);
+        assertArrayEquals(serial, encode(parallelConverter), "A global color table should be the same when encoding on multiple threads.");
+
+        assertEquals(frames.size(), readFrameCount(serial), "A GIF with a global color table should be readable.");
+        assertTrue(serial.length < local.length - 768 * (frames.size() - 1), "Frames shouldn't have local color tables when there's a global one.");
+
+        // streamed frames are held back until there are enough to sample, or until the gif is finished
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final GifConverter streamingConverter = new GifConverter();
+        streamingConverter.setOutputStream(out);
+        streamingConverter.setUseGlobalColorTable(true);
+        streamingConverter.setGlobalPaletteSampleFrames(4);
+        assertTrue(streamingConverter.begin());
+        for (int i = 0; i < 6; i++) {
+            assertTrue(streamingConverter.append(frames.get(i)));
+        }
+        assertTrue(streamingConverter.finish());
+        assertEquals(6, readFrameCount(out.toByteArray()), "Streaming frames with a global color table should write every frame.");
+    }
+
+    @Test
+    public void testQuantizers() throws IOException {
+        final List<Frame> frames = createFrames(4);
+        for (QuantizerType quantizerType : QuantizerType.values()) {
+            final GifConverter serialConverter = new GifConverter(frames);
+            serialConverter.setQuantizerType(quantizerType);
+            final byte[] serial = encode(serialConverter);
+
+            final GifConverter parallelConverter = new GifConverter(frames);
+            parallelConverter.setQuantizerType(quantizerType);
+            parallelConverter.setEncodingThreads(3);
+            assertArrayEquals(serial, encode(parallelConverter), quantizerType + " should produce the same bytes on multiple threads as on one.");
+
+            final ImageReader reader = ImageIO.getImageReadersByFormatName("gif").next();
+            try (ImageInputStream in = ImageIO.createImageInputStream(new ByteArrayInputStream(serial))) {
+                reader.setInput(in);
+                assertEquals(frames.size(), reader.getNumImages(true), "A GIF quantized with " + quantizerType + " should be readable.");
+                final BufferedImage expected = frames.get(0).getImage();
+                final BufferedImage actual = reader.read(0);
+                for (int[] point : new int[][] { { 5, 5 }, { WIDTH - 5, HEIGHT - 5 }, { 15, 35 } }) {
+                    final Color expectedColor = new Color(expected.getRGB(point[0], point[1]));
+                    final Color actualColor = new Color(actual.getRGB(point[0], point[1]));
+                    assertEquals(expectedColor.getRed(), actualColor.getRed(), 24, quantizerType + " should keep colors close to the original.");
+                    assertEquals(expectedColor.getGreen(), actualColor.getGreen(), 24, quantizerType + " should keep colors close to the original.");
+                    assertEquals(expectedColor.getBlue(), actualColor.getBlue(), 24, quantizerType + " should keep colors close to the original.");
+                }
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    @Test
+    public void testExactPalette() throws IOException {
+        // flat colors, like a terminal, so every frame has far fewer than 256 colors
+        final Color[] colors = { new Color(30, 30, 30), new Color(200, 200, 200), new Color(90, 200, 90), new Color(201, 200, 200) };
+        final List<Frame> frames = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            final BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_3BYTE_BGR);
+            final Graphics2D g = image.createGraphics();
+            g.setColor(colors[0]);
+            g.fillRect(0, 0, WIDTH, HEIGHT);
+            for (int line = 0; line <= i; line++) {
+                g.setColor(colors[1 + line % 3]);
+                g.fillRect(4, 4 + line * 12, 40 + line * 25, 8);
+            }
+            g.dispose();
+            frames.add(new Frame(image, i * 55));
+        }
+
+        final GifConverter converter = new GifConverter(frames);
+        converter.setDeltaEncoding(true);
+        final byte[] gif = encode(converter);
+
+        final ImageReader reader = ImageIO.getImageReadersByFormatName("gif").next();
+        try (ImageInputStream in = ImageIO.createImageInputStream(new ByteArrayInputStream(gif))) {
+            reader.setInput(in);
+            final BufferedImage canvas = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+            final Graphics2D g = canvas.createGraphics();
+            for (int i = 0; i < frames.size(); i++) {
+                final IIOMetadataNode root = (IIOMetadataNode) reader.getImageMetadata(i).getAsTree("javax_imageio_gif_image_1.0");
+                final IIOMetadataNode descriptor = (IIOMetadataNode) root.getElementsByTagName("ImageDescriptor").item(0);
+                g.drawImage(reader.read(i), Integer.parseInt(descriptor.getAttribute("imageLeftPosition")), Integer.parseInt(descriptor.getAttribute("imageTopPosition")), null);
+
+                final BufferedImage expected = frames.get(i).getImage();
+                for (int y = 0; y < HEIGHT; y++) {
+                    for (int x = 0; x < WIDTH; x++) {
+                        assertEquals(expected.getRGB(x, y), canvas.getRGB(x, y) | 0xff000000, "Frames with at most 256 colors should keep their exact colors.");
+                    }
+                }
+            }
+            g.dispose();
+        } finally {
+            reader.dispose();
+        }
+    }
+
+    @Test
+    public void testSkipDuplicateFrames() throws IOException {
+        // each image is captured three times in a row
+        final List<Frame> frames = new ArrayList<>();
+        for (Frame frame : createFrames(4)) {
+            for (int i = 0; i < 3; i++) {
+                frames.add(new Frame(frame.getImage(), frames.size() * 55));
+            }
+        }
+        final GifConverter converter = new GifConverter(frames);
+        converter.setSkipDuplicateFrames(true);
+        final byte[] gif = encode(converter);
+        assertEquals(4, readFrameCount(gif), "Duplicate frames shouldn't be written.");
+
+        final ImageReader reader = ImageIO.getImageReadersByFormatName("gif").next();
+        try (ImageInputStream in = ImageIO.createImageInputStream(new ByteArrayInputStream(gif))) {
+            reader.setInput(in);
+            for (int i = 1; i < 4; i++) {
+                final IIOMetadataNode root = (IIOMetadataNode) reader.getImageMetadata(i).getAsTree("javax_imageio_gif_image_1.0");
+                final IIOMetadataNode control = (IIOMetadataNode) root.getElementsByTagName("GraphicControlExtension").item(0);
+                assertEquals(Math.round(3 * 55 / 10d), Integer.parseInt(control.getAttribute("delayTime")), "A frame should stay on screen for as long as its duplicates.");
+            }
+        } finally {
+            reader.dispose();
+        }
+    }
+
+}
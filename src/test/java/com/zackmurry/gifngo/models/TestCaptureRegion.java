@@ -0,0 +1,29 @@
+package com.zackmurry.gifngo.models;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class TestCaptureRegion {
+
+    @Test
+    public void testFromString() {
+        final CaptureRegion region = CaptureRegion.fromString("10, 20,640,360");
+        assertEquals(10, region.getX());
+        assertEquals(20, region.getY());
+        assertEquals(640, region.getWidth());
+        assertEquals(360, region.getHeight());
+
+        assertThrows(IllegalArgumentException.class, () -> CaptureRegion.fromString("10,20,640"), "A region should need four values.");
+        assertThrows(IllegalArgumentException.class, () -> CaptureRegion.fromString("10,20,640,abc"), "A region should only contain integers.");
+        assertThrows(IllegalArgumentException.class, () -> CaptureRegion.fromString("10,20,0,360"), "A region should have a positive width.");
+
+        final CaptureRegion monitor = new CaptureRegion(1920, -100, 2560, 1440);
+        final CaptureRegion onMonitor = region.relativeTo(monitor);
+        assertEquals(1930, onMonitor.getX(), "A region on a monitor should be offset by the monitor's position.");
+        assertEquals(-80, onMonitor.getY());
+        assertEquals(640, onMonitor.getWidth());
+    }
+
+}
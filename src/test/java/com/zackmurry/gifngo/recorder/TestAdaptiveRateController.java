@@ -0,0 +1,22 @@
+package com.zackmurry.gifngo.recorder;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class TestAdaptiveRateController {
+
+    @Test
+    public void testNextStride() {
+        assertEquals(1, AdaptiveRateController.maxStrideFor(24, 0), "The frame rate shouldn't change without a minimum.");
+        assertEquals(3, AdaptiveRateController.maxStrideFor(30, 10));
+
+        final AdaptiveRateController controller = new AdaptiveRateController(null, null, 3);
+        assertEquals(2, controller.nextStride(1, 16, 32, false), "A half-full queue should lower the frame rate.");
+        assertEquals(2, controller.nextStride(1, 0, 32, true), "Skipped ticks should lower the frame rate.");
+        assertEquals(3, controller.nextStride(3, 32, 32, true), "The frame rate shouldn't go below the minimum.");
+        assertEquals(2, controller.nextStride(3, 4, 32, false), "The frame rate should go back up once the queue empties.");
+        assertEquals(2, controller.nextStride(2, 12, 32, false), "The frame rate should stay put in between.");
+    }
+
+}
@@ -0,0 +1,17 @@
+package com.zackmurry.gifngo.recorder;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class TestAdaptiveThreadController {
+
+    @Test
+    public void testNeededThreads() {
+        final long interval = 40_000_000L; // 25 fps
+        assertEquals(1, AdaptiveThreadController.neededThreads(1_000_000L, interval), "Fast captures should only need one thread.");
+        assertEquals(2, AdaptiveThreadController.neededThreads(35_000_000L, interval), "Captures close to the interval should get a spare thread.");
+        assertEquals(3, AdaptiveThreadController.neededThreads(90_000_000L, interval), "Slow captures should be spread over enough threads.");
+    }
+
+}
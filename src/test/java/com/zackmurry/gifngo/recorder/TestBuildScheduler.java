@@ -0,0 +1,45 @@
+package com.zackmurry.gifngo.recorder;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class TestBuildScheduler {
+
+    @Test
+    public void testFailuresAreIsolated() {
+        final BuildScheduler scheduler = new BuildScheduler(3, 100L << 20);
+        final AtomicInteger built = new AtomicInteger();
+        scheduler.submit("broken", 1, progress -> {
+            throw new IOException("Corrupt capture.");
+        });
+        for (int i = 0; i < 4; i++) {
+            scheduler.submit("gif " + i, 1, progress -> built.incrementAndGet() > 0);
+        }
+        assertEquals(1, scheduler.finish(), "Only the broken build should fail.");
+        assertEquals(4, built.get(), "The other builds should still run.");
+    }
+
+    @Test
+    public void testMemoryBudget() {
+        final BuildScheduler scheduler = new BuildScheduler(4, 100L << 20);
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger mostRunning = new AtomicInteger();
+        for (int i = 0; i < 4; i++) {
+            // each build needs more than half the budget, so only one can run at a time
+            scheduler.submit("gif " + i, 60L << 20, progress -> {
+                mostRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                LockSupport.parkNanos(20_000_000L);
+                running.decrementAndGet();
+                return true;
+            });
+        }
+        assertEquals(0, scheduler.finish());
+        assertEquals(1, mostRunning.get(), "Builds shouldn't go over the memory budget together.");
+    }
+
+}
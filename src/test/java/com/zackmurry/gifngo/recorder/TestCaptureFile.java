@@ -0,0 +1,64 @@
+package com.zackmurry.gifngo.recorder;
+
+import com.zackmurry.gifngo.models.Frame;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TestCaptureFile {
+
+    @TempDir
+    File folder;
+
+    @Test
+    public void testFramesRoundTrip() throws IOException {
+        final Random random = new Random(4);
+        // a flat image that compresses well and a noisy one that doesn't
+        final BufferedImage flat = new BufferedImage(40, 30, BufferedImage.TYPE_INT_RGB);
+        final BufferedImage noise = new BufferedImage(40, 30, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < 30; y++) {
+            for (int x = 0; x < 40; x++) {
+                flat.setRGB(x, y, 0x336699);
+                noise.setRGB(x, y, random.nextInt(0x1000000));
+            }
+        }
+
+        final File file = new File(folder, "test" + CaptureFile.EXTENSION);
+        try (CaptureFile.Writer writer = new CaptureFile.Writer(file)) {
+            writer.write(new Frame(flat, 0));
+            writer.write(new Frame(noise, 42));
+        }
+        assertTrue(CaptureFile.isCaptureFile(file));
+        assertTrue(file.length() < 40 * 30 * 3 * 2, "The flat frame should have been compressed.");
+
+        // a frame that was cut off while being saved shouldn't be read
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(raf.length());
+            raf.writeInt(1000);
+            raf.writeInt(7);
+        }
+
+        try (CaptureFile.Reader reader = new CaptureFile.Reader(file)) {
+            assertEquals(2, reader.getFrameCount());
+            final BufferedImage[] expected = { flat, noise };
+            for (int i = 0; i < 2; i++) {
+                final Frame frame = reader.read(i);
+                assertEquals(i * 42, frame.getTimeSinceStart());
+                for (int y = 0; y < 30; y++) {
+                    for (int x = 0; x < 40; x++) {
+                        assertEquals(expected[i].getRGB(x, y), frame.getImage().getRGB(x, y), "Frames should be saved losslessly.");
+                    }
+                }
+            }
+        }
+    }
+
+}
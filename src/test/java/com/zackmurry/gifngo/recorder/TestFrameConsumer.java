@@ -0,0 +1,39 @@
+package com.zackmurry.gifngo.recorder;
+
+import com.zackmurry.gifngo.models.Frame;
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TestFrameConsumer {
+
+    @Test
+    public void testSinkFailureStopsConsuming() {
+        final FrameRingBuffer buffer = new FrameRingBuffer(8, OverflowPolicy.BLOCK);
+        for (int i = 0; i < 5; i++) {
+            buffer.offer(new Frame(new BufferedImage(4, 3, BufferedImage.TYPE_INT_RGB), i, i));
+        }
+        buffer.close();
+        final AtomicInteger calls = new AtomicInteger();
+        final FrameConsumer consumer = new FrameConsumer(buffer, frame -> {
+            if (calls.incrementAndGet() == 2) {
+                throw new UncheckedIOException(new IOException("Disk full."));
+            }
+        });
+        consumer.start();
+        consumer.finish();
+
+        assertTrue(consumer.getFailure() instanceof UncheckedIOException, "The consumer should keep the sink's first failure.");
+        assertEquals(2, calls.get(), "Frames after a failure shouldn't be handed to the sink.");
+        assertEquals(1, consumer.getConsumedFrames());
+        assertNull(buffer.take(), "The rest of the frames should still be taken out of the buffer.");
+    }
+
+}
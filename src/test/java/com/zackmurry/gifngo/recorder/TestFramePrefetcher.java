@@ -0,0 +1,37 @@
+package com.zackmurry.gifngo.recorder;
+
+import com.zackmurry.gifngo.models.Frame;
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class TestFramePrefetcher {
+
+    @Test
+    public void testFramesComeOutInOrder() {
+        final Random random = new Random(9);
+        final List<Integer> times = new ArrayList<>();
+        try (FramePrefetcher prefetcher = new FramePrefetcher(3)) {
+            prefetcher.load(40, index -> {
+                // frames take different amounts of time to load, so they finish out of order
+                LockSupport.parkNanos(random.nextInt(2_000_000));
+                if (index == 7) {
+                    throw new IOException("Unreadable frame.");
+                }
+                return new Frame(new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB), index);
+            }, frame -> times.add(frame.getTimeSinceStart()));
+        }
+        assertEquals(39, times.size(), "Frames that can't be loaded should be skipped.");
+        for (int i = 0; i < times.size(); i++) {
+            assertEquals(i < 7 ? i : i + 1, times.get(i), "Frames should be handed over in order.");
+        }
+    }
+
+}
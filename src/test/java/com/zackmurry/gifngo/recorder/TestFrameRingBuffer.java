@@ -0,0 +1,161 @@
+package com.zackmurry.gifngo.recorder;
+
+import com.zackmurry.gifngo.models.Frame;
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+public class TestFrameRingBuffer {
+
+    private static Frame createFrame(int timeSinceStart) {
+        final BufferedImage image = new BufferedImage(4, 3, BufferedImage.TYPE_INT_RGB);
+        image.setRGB(1, 1, timeSinceStart);
+        return new Frame(image, timeSinceStart, timeSinceStart);
+    }
+
+    @Test
+    public void testFramesComeOutInOrder() {
+        final FrameRingBuffer buffer = new FrameRingBuffer(6, OverflowPolicy.BLOCK);
+        assertEquals(8, buffer.getCapacity(), "Capacity should be rounded up to a power of two.");
+        for (int i = 0; i < 5; i++) {
+            buffer.offer(createFrame(i));
+        }
+        assertEquals(5, buffer.getDepth(), "Depth should count the frames waiting in the buffer.");
+        buffer.close();
+        for (int i = 0; i < 5; i++) {
+            assertEquals(i, buffer.take().getTimeSinceStart(), "Frames should be taken in the order they were offered.");
+        }
+        assertNull(buffer.take(), "Taking from an empty, closed buffer should return null.");
+        assertEquals(5, buffer.getHighWaterMark());
+    }
+
+    @Test
+    public void testDropOldest() {
+        final FrameRingBuffer buffer = new FrameRingBuffer(4, OverflowPolicy.DROP_OLDEST);
+        for (int i = 0; i < 6; i++) {
+            buffer.offer(createFrame(i));
+        }
+        buffer.close();
+        assertEquals(2, buffer.getDroppedFrames(), "The buffer should drop a frame for every frame offered while full.");
+        for (int i = 2; i < 6; i++) {
+            assertEquals(i, buffer.take().getTimeSinceStart(), "The oldest frames should be the ones dropped.");
+        }
+        assertNull(buffer.take());
+    }
+
+    @Test
+    public void testSpillToDisk() {
+        final FrameRingBuffer buffer = new FrameRingBuffer(2, OverflowPolicy.SPILL_TO_DISK);
+        for (int i = 0; i < 5; i++) {
+            buffer.offer(createFrame(i));
+        }
+        assertEquals(3, buffer.getSpilledFrames(), "Frames that don't fit in memory should be spilled.");
+        assertEquals(0, buffer.take().getTimeSinceStart());
+
+        // frames offered while others are spilled should go after them
+        buffer.offer(createFrame(5));
+        buffer.close();
+        for (int i = 1; i < 6; i++) {
+            final Frame frame = buffer.take();
+            assertEquals(i, frame.getTimeSinceStart(), "Spilled frames should come back in order.");
+            assertEquals(i, frame.getImage().getRGB(1, 1) & 0xffffff, "Spilled frames should keep their pixels.");
+        }
+        assertNull(buffer.take());
+        assertEquals(0, buffer.getDroppedFrames());
+        buffer.release();
+    }
+
+    @Test
+    public void testFramesComeOutInSequence() {
+        final FrameRingBuffer buffer = new FrameRingBuffer(8, OverflowPolicy.BLOCK);
+        buffer.offer(createFrame(1));
+        buffer.offer(createFrame(0));
+        buffer.offer(createFrame(4));
+        buffer.skip(2, 4);
+        buffer.offer(createFrame(6));
+        assertEquals(0, buffer.take().getTimeSinceStart(), "Frames should be taken in order of their sequence.");
+        assertEquals(1, buffer.take().getTimeSinceStart());
+        assertEquals(4, buffer.take().getTimeSinceStart(), "Skipped sequences shouldn't be waited for.");
+        assertEquals(1, buffer.getDepth() + buffer.getWaitingFrames(), "Frame 6 should be waiting for frame 5.");
+
+        // nothing is coming for sequence 5, which only becomes known once the queue is closed
+        buffer.close();
+        assertEquals(6, buffer.take().getTimeSinceStart(), "Waiting frames should be taken once the queue is closed.");
+        assertNull(buffer.take());
+    }
+
+    @Test
+    public void testWaitingFramesAreCapped() {
+        final FrameRingBuffer buffer = new FrameRingBuffer(4, OverflowPolicy.BLOCK);
+        // frame 0 never arrives and is never reported as missing
+        for (int i = 1; i <= 4; i++) {
+            buffer.offer(createFrame(i));
+        }
+        assertEquals(1, buffer.take().getTimeSinceStart(), "Frames shouldn't wait for a missing frame once a queue's worth of them are waiting.");
+        assertEquals(1, buffer.getDroppedFrames(), "The missing frame should be counted as dropped.");
+
+        buffer.offer(createFrame(0));
+        buffer.close();
+        for (int i = 2; i <= 4; i++) {
+            assertEquals(i, buffer.take().getTimeSinceStart());
+        }
+        assertNull(buffer.take(), "A frame that arrives after it was given up on should be dropped.");
+        assertEquals(1, buffer.getDroppedFrames(), "A frame that was given up on shouldn't be counted twice.");
+    }
+
+    @Test
+    public void testWaitingFramesCountTowardCapacity() {
+        final FrameRingBuffer buffer = new FrameRingBuffer(4, OverflowPolicy.SPILL_TO_DISK);
+        for (int i = 1; i <= 3; i++) {
+            buffer.offer(createFrame(i));
+        }
+        buffer.offer(createFrame(0));
+        // frames 1 to 3 came out of the queue before frame 0 and are now waiting to be taken
+        assertEquals(0, buffer.take().getTimeSinceStart());
+        assertEquals(3, buffer.getWaitingFrames());
+
+        buffer.offer(createFrame(4));
+        buffer.offer(createFrame(5));
+        assertEquals(1, buffer.getSpilledFrames(), "Frames waiting to be taken should count toward the capacity.");
+
+        buffer.close();
+        for (int i = 1; i <= 5; i++) {
+            assertEquals(i, buffer.take().getTimeSinceStart());
+        }
+        assertNull(buffer.take());
+        buffer.release();
+    }
+
+    @Test
+    public void testUnreadableSpillIsDiscarded() throws IOException {
+        final File file = File.createTempFile("gifngo-spill-test", ".frames");
+        final FrameRingBuffer buffer = new FrameRingBuffer(2, OverflowPolicy.SPILL_TO_DISK, new FrameSpill(file));
+        for (int i = 0; i < 5; i++) {
+            buffer.offer(createFrame(i));
+        }
+        assertEquals(3, buffer.getSpilledFrames());
+
+        // the spilled frames are lost from under the buffer, so reading them back fails
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+            channel.truncate(0);
+        }
+        buffer.close();
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+            assertEquals(0, buffer.take().getTimeSinceStart());
+            assertEquals(1, buffer.take().getTimeSinceStart());
+            assertNull(buffer.take(), "The buffer should give up on spilled frames that can't be read instead of retrying them.");
+        });
+        assertEquals(3, buffer.getDroppedFrames(), "Every spilled frame should be counted as dropped.");
+        buffer.release();
+    }
+
+}
@@ -0,0 +1,88 @@
+package com.zackmurry.gifngo.recorder;
+
+import com.zackmurry.gifngo.models.Frame;
+import com.zackmurry.gifngo.models.ImageDimension;
+import org.junit.jupiter.api.Test;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class TestImageResizer {
+
+    @Test
+    public void testEveryQualityResizes() {
+        final BufferedImage capture = new BufferedImage(400, 300, BufferedImage.TYPE_INT_RGB);
+        final Graphics2D g = capture.createGraphics();
+        g.setColor(new Color(10, 120, 230));
+        g.fillRect(0, 0, 400, 300);
+        g.dispose();
+        for (ResizeQuality quality : ResizeQuality.values()) {
+            final BufferedImage resized = ImageResizer.resize(capture, 90, 70, quality);
+            assertEquals(BufferedImage.TYPE_3BYTE_BGR, resized.getType(), "Resized images should be in the format GifConverter reads.");
+            assertEquals(90, resized.getWidth());
+            assertEquals(70, resized.getHeight());
+            assertEquals(capture.getRGB(0, 0), resized.getRGB(45, 35), quality + " should keep the color of a solid image.");
+        }
+    }
+
+    @Test
+    public void testBoxAveragesPixels() {
+        // alternating black and white columns should average to gray, where nearest neighbor would only pick one of them
+        final BufferedImage capture = new BufferedImage(8, 8, BufferedImage.TYPE_INT_RGB);
+        for (int x = 0; x < 8; x += 2) {
+            for (int y = 0; y < 8; y++) {
+                capture.setRGB(x, y, 0xffffff);
+            }
+        }
+        assertEquals(0xff808080, ImageResizer.resize(capture, 4, 4, ResizeQuality.BOX).getRGB(1, 1));
+        assertEquals(0xff808080, ImageResizer.resize(capture, 2, 2, ResizeQuality.PROGRESSIVE).getRGB(1, 1));
+    }
+
+    @Test
+    public void testBoxHandlesHugeBoxes() {
+        // 8.8 million white pixels in one box add up to more than an int can hold
+        final BufferedImage capture = new BufferedImage(4096, 2160, BufferedImage.TYPE_INT_RGB);
+        final Graphics2D g = capture.createGraphics();
+        g.setColor(Color.WHITE);
+        g.fillRect(0, 0, 4096, 2160);
+        g.dispose();
+        assertEquals(0xffffffff, ImageResizer.resize(capture, 1, 1, ResizeQuality.BOX).getRGB(0, 0), "Averaging a huge box shouldn't overflow.");
+    }
+
+    @Test
+    public void testParallelResizerMatchesSerial() {
+        // big enough to be split into bands
+        final List<BufferedImage> captures = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            final BufferedImage capture = new BufferedImage(2560, 1440, BufferedImage.TYPE_INT_RGB);
+            final Graphics2D g = capture.createGraphics();
+            g.setPaint(new GradientPaint(i * 100, 0, Color.RED, 2560, 1440, Color.CYAN));
+            g.fillRect(0, 0, 2560, 1440);
+            g.dispose();
+            captures.add(capture);
+        }
+        for (ResizeQuality quality : ResizeQuality.values()) {
+            final List<Frame> resized = new ArrayList<>();
+            final ParallelResizer resizer = new ParallelResizer(new ImageDimension(480, 270), quality, 3, resized::add);
+            for (int i = 0; i < captures.size(); i++) {
+                resizer.submit(new Frame(captures.get(i), i));
+            }
+            resizer.close();
+            assertEquals(captures.size(), resized.size(), "Every frame should be handed downstream.");
+            for (int i = 0; i < captures.size(); i++) {
+                assertEquals(i, resized.get(i).getTimeSinceStart(), "Frames should be handed downstream in the order they were submitted.");
+                final BufferedImage serial = ImageResizer.resize(captures.get(i), 480, 270, quality);
+                assertArrayEquals(((DataBufferByte) serial.getRaster().getDataBuffer()).getData(),
+                        ((DataBufferByte) resized.get(i).getImage().getRaster().getDataBuffer()).getData(),
+                        quality + " should give the same pixels when split into bands.");
+            }
+        }
+    }
+
+}
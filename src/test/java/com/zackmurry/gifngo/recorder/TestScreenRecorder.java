@@ -0,0 +1,118 @@
+package com.zackmurry.gifngo.recorder;
+
+import com.zackmurry.gifngo.models.Frame;
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TestScreenRecorder {
+
+    @Test
+    public void testRecordersTakeTurns() throws InterruptedException {
+        final FrameRingBuffer buffer = new FrameRingBuffer(64, OverflowPolicy.DROP_OLDEST);
+        // stands in for the screen, so this runs without a display
+        final Set<Long> sequences = ConcurrentHashMap.newKeySet();
+        final FrameSource source = sequence -> {
+            sequences.add(sequence);
+            return new BufferedImage(32, 18, BufferedImage.TYPE_INT_RGB);
+        };
+        // a slow frame rate, so the first tick isn't skipped while the recording threads are still starting
+        final FrameScheduler scheduler = new FrameScheduler(20);
+        final ScreenRecorder first = new ScreenRecorder(buffer, source, scheduler);
+        final ScreenRecorder second = new ScreenRecorder(buffer, source, scheduler);
+        final long start = System.nanoTime();
+        scheduler.start();
+        first.startRecording();
+        second.startRecording();
+        Thread.sleep(300);
+        scheduler.stop();
+        final long expected = (System.nanoTime() - start) / scheduler.getIntervalNanos() + 1;
+        final int captured = first.stopRecording() + second.stopRecording();
+        buffer.close();
+
+        assertTrue(Math.abs(captured - expected) <= 2, "The recorders should capture at the scheduler's frame rate: expected about " + expected + " frames, but captured " + captured + ".");
+        assertEquals(captured, sequences.size(), "Each recorder should capture different ticks.");
+        assertTrue(sequences.contains(0L) && sequences.contains(1L), "Ticks should start from the first frame.");
+
+        int previousTime = -1;
+        Frame frame;
+        while ((frame = buffer.take()) != null) {
+            assertTrue(frame.getTimeSinceStart() >= previousTime, "Frames should be taken in time order.");
+            previousTime = frame.getTimeSinceStart();
+        }
+    }
+
+    @Test
+    public void testReplayRunsOut() throws IOException, InterruptedException {
+        final File file = File.createTempFile("gifngo-replay", ".frames");
+        file.deleteOnExit();
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+            for (int i = 0; i < 3; i++) {
+                final BufferedImage image = new BufferedImage(8, 6, BufferedImage.TYPE_INT_RGB);
+                image.setRGB(2, 3, 0x102030 * (i + 1));
+                final ByteBuffer frame = RawFrames.encode(new Frame(image, i));
+                while (frame.hasRemaining()) {
+                    channel.write(frame);
+                }
+            }
+        }
+
+        final ReplayFrameSource source = new ReplayFrameSource(file);
+        assertEquals(3, source.getFrameCount());
+        final FrameRingBuffer buffer = new FrameRingBuffer(8, OverflowPolicy.BLOCK);
+        final FrameScheduler scheduler = new FrameScheduler(50);
+        final ScreenRecorder recorder = new ScreenRecorder(buffer, source, scheduler);
+        scheduler.start();
+        recorder.startRecording();
+        final long timeout = System.currentTimeMillis() + 5000;
+        while (!recorder.isExhausted() && System.currentTimeMillis() < timeout) {
+            Thread.sleep(5);
+        }
+        assertTrue(recorder.isExhausted(), "The recorder should stop when the replay runs out.");
+        assertEquals(3, recorder.stopRecording());
+        buffer.close();
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0x102030 * (i + 1), buffer.take().getImage().getRGB(2, 3) & 0xffffff, "Frames should be replayed in order.");
+        }
+        source.close();
+    }
+
+    @Test
+    public void testFailedCaptureIsSkipped() {
+        final FrameRingBuffer buffer = new FrameRingBuffer(16, OverflowPolicy.BLOCK);
+        final FrameSource source = sequence -> {
+            if (sequence == 2) {
+                throw new IllegalStateException("Capture failed.");
+            }
+            return sequence < 6 ? new BufferedImage(8, 6, BufferedImage.TYPE_INT_RGB) : null;
+        };
+        final FrameScheduler scheduler = new FrameScheduler(100);
+        final ScreenRecorder recorder = new ScreenRecorder(buffer, source, scheduler);
+        scheduler.start();
+        recorder.startRecording();
+
+        // the queue stays open, so the frames after the failed capture only come out if it was reported as missing
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+            for (long sequence : new long[] { 0, 1, 3, 4, 5 }) {
+                assertEquals(sequence, buffer.take().getSequence(), "Frames after a failed capture shouldn't wait for it.");
+            }
+        });
+        assertEquals(5, recorder.stopRecording(), "The recorder should keep capturing after a failed capture.");
+        buffer.close();
+        assertNull(buffer.take());
+    }
+
+}